@@ -0,0 +1,175 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soot.*;
+import soot.jimple.*;
+
+/*
+ * Pre-pass of jtp.dfa: inlines calls to trivial getters and setters.
+ *
+ * A call is replaced when its only possible target is an application method
+ * whose body is a single load or store of a field of `this`:
+ *
+ *     r0 := @this;  $r1 = r0.f;  return $r1;     x = a.getF()   → x = a.f
+ *     r0 := @this;  r1 := @parameter0;
+ *     r0.f = r1;    return;                      a.setF(v)      → a.f = v
+ *
+ * The field access throws the same NullPointerException as the call on a
+ * null receiver. Methods with more units than max-size, synchronized
+ * methods, and fields the caller cannot access are left alone.
+ */
+public class AccessorInliner extends BodyTransformer {
+
+    public static final String PHASE = "jtp.accessors";
+
+    /* Classified callees; NONE for methods that are not accessors */
+    private final Map<SootMethod, Accessor> accessors = new ConcurrentHashMap<>();
+    private static final Accessor NONE = new Accessor(null, false, -1, null);
+
+    protected void internalTransform(Body body, String phaseName, Map<String, String> options) {
+        int maxSize = PhaseOptions.getInt(options, "max-size");
+        SootClass caller = body.getMethod().getDeclaringClass();
+        FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
+
+        int inlined = 0;
+        for (Unit u : new ArrayList<>(body.getUnits())) {
+            Stmt stmt = (Stmt) u;
+            if (!stmt.containsInvokeExpr()) continue;
+            if (!(stmt.getInvokeExpr() instanceof InstanceInvokeExpr)) continue;
+
+            InstanceInvokeExpr invoke = (InstanceInvokeExpr) stmt.getInvokeExpr();
+            SootMethod target = singleTarget(invoke, hierarchy);
+            if (target == null) continue;
+
+            Accessor acc = accessors.computeIfAbsent(target, m -> classify(m, maxSize));
+            if (acc == NONE || !hierarchy.isVisible(caller, acc.field)) continue;
+
+            // A getter whose result is dropped is not worth a load
+            if (!acc.store && !(stmt instanceof AssignStmt)) continue;
+
+            Unit replacement = inline(body, stmt, invoke, acc, hierarchy);
+
+            replacement.addAllTagsOf(stmt);
+            body.getUnits().swapWith(stmt, replacement);
+            inlined++;
+        }
+
+        if (inlined > 0) {
+            System.out.println("[Accessor inlining] " + body.getMethod().getSignature()
+                + ": " + inlined + " call(s) inlined");
+        }
+    }
+
+    private static SootMethod singleTarget(InstanceInvokeExpr invoke, FastHierarchy hierarchy) {
+        SootMethod declared = invoke.getMethodRef().tryResolve();
+        if (declared == null) return null;
+        if (invoke instanceof SpecialInvokeExpr) return declared;
+
+        Type baseType = invoke.getBase().getType();
+        if (!(baseType instanceof RefType)) return null;
+
+        Set<SootMethod> targets = hierarchy.resolveAbstractDispatch(
+            ((RefType) baseType).getSootClass(), declared);
+        return targets.size() == 1 ? targets.iterator().next() : null;
+    }
+
+    /*
+     * The single target may be declared in a subtype of the receiver's
+     * static type, which then does not declare the field. The receiver is
+     * cast to the field's class first, so the result still verifies; the
+     * cast cannot fail, as every receiver dispatching to the target is an
+     * instance of that class.
+     */
+    private static Unit inline(Body body, Stmt stmt, InstanceInvokeExpr invoke,
+                               Accessor acc, FastHierarchy hierarchy) {
+        Value base = invoke.getBase();
+        RefType owner = acc.field.getDeclaringClass().getType();
+        if (!hierarchy.canStoreType(base.getType(), owner)) {
+            Local cast = Jimple.v().newLocal("$acc" + body.getLocalCount(), owner);
+            body.getLocals().add(cast);
+            Unit castStmt = Jimple.v().newAssignStmt(cast, Jimple.v().newCastExpr(base, owner));
+            castStmt.addAllTagsOf(stmt);
+            body.getUnits().insertBefore(castStmt, stmt);
+            base = cast;
+        }
+        InstanceFieldRef ref = Jimple.v().newInstanceFieldRef(base, acc.field.makeRef());
+
+        if (!acc.store) {
+            return Jimple.v().newAssignStmt(((AssignStmt) stmt).getLeftOp(), ref);
+        }
+
+        Value stored = acc.parameter >= 0 ? invoke.getArg(acc.parameter) : acc.constant;
+        return Jimple.v().newAssignStmt(ref, stored);
+    }
+
+    private static Accessor classify(SootMethod m, int maxSize) {
+        if (!m.getDeclaringClass().isApplicationClass() || !m.isConcrete() ||
+            m.isStatic() || m.isSynchronized() || m.isConstructor()) {
+            return NONE;
+        }
+
+        Body body = m.retrieveActiveBody();
+        if (body.getUnits().size() > maxSize) return NONE;
+
+        Local thisLocal = body.getThisLocal();
+        Map<Local, Integer> params = new HashMap<>();
+        List<Unit> rest = new ArrayList<>();
+
+        for (Unit u : body.getUnits()) {
+            if (u instanceof IdentityStmt) {
+                IdentityStmt id = (IdentityStmt) u;
+                if (id.getRightOp() instanceof ParameterRef) {
+                    params.put((Local) id.getLeftOp(), ((ParameterRef) id.getRightOp()).getIndex());
+                }
+            } else {
+                rest.add(u);
+            }
+        }
+        if (rest.size() != 2) return NONE;
+
+        Unit access = rest.get(0);
+        Unit ret = rest.get(1);
+        if (!(access instanceof AssignStmt)) return NONE;
+
+        Value lhs = ((AssignStmt) access).getLeftOp();
+        Value rhs = ((AssignStmt) access).getRightOp();
+
+        // Getter: t = this.f; return t;
+        if (rhs instanceof InstanceFieldRef && lhs instanceof Local &&
+            ((InstanceFieldRef) rhs).getBase() == thisLocal &&
+            ret instanceof ReturnStmt && ((ReturnStmt) ret).getOp() == lhs) {
+            return new Accessor(((InstanceFieldRef) rhs).getField(), false, -1, null);
+        }
+
+        // Setter: this.f = p; return;  (or a constant)
+        if (lhs instanceof InstanceFieldRef &&
+            ((InstanceFieldRef) lhs).getBase() == thisLocal &&
+            ret instanceof ReturnVoidStmt) {
+            SootField field = ((InstanceFieldRef) lhs).getField();
+            if (rhs instanceof Constant) {
+                return new Accessor(field, true, -1, (Constant) rhs);
+            }
+            Integer index = params.get(rhs);
+            if (index != null) {
+                return new Accessor(field, true, index, null);
+            }
+        }
+
+        return NONE;
+    }
+
+    private static class Accessor {
+        final SootField field;
+        final boolean store;
+        /* Setter argument that is stored, or -1 for a constant */
+        final int parameter;
+        final Constant constant;
+
+        Accessor(SootField field, boolean store, int parameter, Constant constant) {
+            this.field = field;
+            this.store = store;
+            this.parameter = parameter;
+            this.constant = constant;
+        }
+    }
+}
@@ -1,18 +1,141 @@
 import java.util.*;
 import soot.*;
 import soot.jimple.AnyNewExpr;
+import soot.jimple.AssignStmt;
+import soot.jimple.Constant;
+import soot.jimple.InstanceFieldRef;
+import soot.jimple.Jimple;
 import soot.jimple.Ref;
 import soot.toolkits.graph.*;
 import soot.toolkits.scalar.FlowSet;
 public class AnalysisTransformer extends BodyTransformer{
+    private PurityModel model;
+
     protected void internalTransform(Body body, String phaseName,Map<String,String> options){
          SootMethod m = body.getMethod();
 
-        // ignore constructors & libs
-        if (m.isConstructor() || m.isJavaLibraryMethod())
+        // ignore libs, and constructors unless -p jtp.dfa constructors:true
+        boolean constructors = PhaseOptions.getBoolean(options, "constructors");
+        if ((m.isConstructor() && !constructors) || m.isJavaLibraryMethod())
             return;
 
-        UnitGraph graph = new ExceptionalUnitGraph(body);
-        new AvailableFieldLoadAnalysis(graph);
+        PurityModel model = model(PhaseOptions.getString(options, "model"));
+
+        // -p jtp.dfa rewrite:true → replace redundant loads in the body
+        boolean rewrite = PhaseOptions.getBoolean(options, "rewrite");
+
+        // -p jtp.dfa forward:true → stores make the stored value available
+        boolean forward = PhaseOptions.getBoolean(options, "forward");
+        Map<AssignStmt, AssignStmt> temporaries = forward
+                ? storeConstantsInTemporaries(body) : Collections.<AssignStmt, AssignStmt>emptyMap();
+
+        // -p jtp.dfa concurrent:true → other threads may write shared objects
+        boolean concurrent = PhaseOptions.getBoolean(options, "concurrent");
+        Set<Local> threadLocal = concurrent
+                ? ThreadLocalObjects.of(body) : Collections.<Local>emptySet();
+
+        boolean blocks = PhaseOptions.getBoolean(options, "blocks");
+        boolean pruned = "pruned".equals(PhaseOptions.getString(options, "graph"));
+
+        // -p jtp.dfa blocks:true → iterate over basic blocks. Excepting units
+        // without side effects get no edge of their own to the handler, so a
+        // block never hands the facts it generated to a handler.
+        ExceptionalUnitGraph graph = blocks
+                ? new ExceptionalUnitGraph(body, Scene.v().getDefaultThrowAnalysis(), true)
+                : new ExceptionalUnitGraph(body);
+
+        ConstructorContext constructor = constructors ? ConstructorContext.of(body, graph) : null;
+
+        DfaOptions dfaOptions = new DfaOptions(model, rewrite, forward, concurrent, threadLocal, constructor);
+
+        Map<Unit, Local> replacements;
+
+        // -p jtp.dfa graph:pruned → drop exceptional edges of units that cannot throw
+        if (pruned) {
+            PrunedExceptionalUnitGraph prunedGraph = new PrunedExceptionalUnitGraph(graph);
+            prunedGraph.report();
+            if (blocks)
+                replacements = new BlockAvailableFieldLoadAnalysis(prunedGraph.toBlockGraph(), dfaOptions).getReplacements();
+            else
+                replacements = new AvailableFieldLoadAnalysis(prunedGraph, dfaOptions).getReplacements();
+        } else if (blocks) {
+            replacements = new BlockAvailableFieldLoadAnalysis(new ExceptionalBlockGraph(graph), dfaOptions).getReplacements();
+        } else {
+            replacements = new AvailableFieldLoadAnalysis(graph, dfaOptions).getReplacements();
+        }
+
+        if (rewrite) rewrite(replacements);
+
+        // Only temporaries that now replace a load stay in the body
+        Collection<Local> used = rewrite ? replacements.values() : Collections.<Local>emptySet();
+        restoreUnusedTemporaries(body, temporaries, used);
+    }
+
+    /* o.f = 10 → $fwd0 = 10; o.f = $fwd0, so a later load of o.f can be
+       replaced by $fwd0. Returns the stores with the definitions of their
+       temporaries. */
+    private static Map<AssignStmt, AssignStmt> storeConstantsInTemporaries(Body body) {
+        Map<AssignStmt, AssignStmt> temporaries = new LinkedHashMap<>();
+        int count = 0;
+        for (Unit u : new ArrayList<>(body.getUnits())) {
+            if (!(u instanceof AssignStmt)) continue;
+            AssignStmt store = (AssignStmt) u;
+            if (!(store.getLeftOp() instanceof InstanceFieldRef) ||
+                !(store.getRightOp() instanceof Constant)) continue;
+
+            SootField field = ((InstanceFieldRef) store.getLeftOp()).getField();
+            Local tmp = Jimple.v().newLocal("$fwd" + count++, field.getType());
+            body.getLocals().add(tmp);
+
+            AssignStmt def = Jimple.v().newAssignStmt(tmp, store.getRightOp());
+            def.addAllTagsOf(store);
+            body.getUnits().insertBefore(def, store);
+            store.setRightOp(tmp);
+            temporaries.put(store, def);
+        }
+        return temporaries;
+    }
+
+    /* $fwd0 = 10; o.f = $fwd0 → o.f = 10 again, unless $fwd0 is used */
+    private static void restoreUnusedTemporaries(Body body, Map<AssignStmt, AssignStmt> temporaries,
+                                                 Collection<Local> used) {
+        Set<Local> keep = new HashSet<>(used);
+        for (Map.Entry<AssignStmt, AssignStmt> e : temporaries.entrySet()) {
+            AssignStmt def = e.getValue();
+            Local tmp = (Local) def.getLeftOp();
+            if (keep.contains(tmp)) continue;
+
+            e.getKey().setRightOp(def.getRightOp());
+            body.getUnits().remove(def);
+            body.getLocals().remove(tmp);
+        }
+    }
+
+    /* x = o.f → x = v, where v already holds o.f */
+    private static void rewrite(Map<Unit, Local> replacements) {
+        for (Map.Entry<Unit, Local> e : replacements.entrySet()) {
+            AssignStmt stmt = (AssignStmt) e.getKey();
+            System.out.println("[Rewrite] line " + stmt.getJavaSourceStartLineNumber()
+                + ": " + stmt + " → " + stmt.getLeftOp() + " = " + e.getValue());
+            stmt.setRightOp(e.getValue());
+        }
+    }
+
+    // -p jtp.dfa model:a.model:b.model → project models on top of the JDK one.
+    // Bodies may be transformed concurrently, so the model is built once.
+    private synchronized PurityModel model(String paths) {
+        if (model != null) return model;
+
+        PurityModel loaded = PurityModel.defaults();
+        for (String path : paths.split(java.io.File.pathSeparator)) {
+            if (path.isEmpty()) continue;
+            try {
+                loaded.addFile(path);
+            } catch (java.io.IOException e) {
+                System.err.println("Warning: could not read model " + path + ": " + e.getMessage());
+            }
+        }
+        model = loaded;
+        return model;
     }
 }
\ No newline at end of file
@@ -11,8 +11,11 @@ public class AvailableFieldLoadAnalysis
     private final FlowSet<FieldLoad> emptySet =
             new ArraySparseSet<>();
 
-    public AvailableFieldLoadAnalysis(UnitGraph graph) {
+    private final DfaOptions options;
+
+    public AvailableFieldLoadAnalysis(UnitGraph graph, DfaOptions options) {
         super(graph);
+        this.options = options;
         doAnalysis();
     }
 
@@ -45,19 +48,65 @@ public class AvailableFieldLoadAnalysis
                                Unit unit,
                                FlowSet<FieldLoad> out) {
 
+        if (transfer(in, unit, out, options)) {
+            reportRedundant(unit, options);
+        }
+    }
+
+    /* -------------------------
+       Transfer function of one unit.
+       Returns true if the unit is a redundant field load.
+     ------------------------- */
+    static boolean transfer(FlowSet<FieldLoad> in,
+                            Unit unit,
+                            FlowSet<FieldLoad> out,
+                            DfaOptions options) {
+
         in.copy(out);
 
         /* -------------------------
-           Method calls → kill all
+           Synchronization: lock acquire/release, synchronized callees and
+           volatile reads publish other threads' writes
+         ------------------------- */
+        if (options.concurrent && isSyncPoint(unit)) {
+            killShared(out, options);
+        }
+
+        /* -------------------------
+           Method calls → kill all, unless the model knows better
          ------------------------- */
         if (unit instanceof InvokeStmt ||
             (unit instanceof AssignStmt &&
              ((AssignStmt) unit).containsInvokeExpr())) {
-            out.clear();
-            return;
+            PurityModel.Effect effect =
+                options.model.lookup(((Stmt) unit).getInvokeExpr());
+            if (effect == null) {
+                if (options.constructor != null) {
+                    killUnlessSurvives(out, (Stmt) unit, options.constructor);
+                } else {
+                    out.clear();
+                }
+                return false;
+            }
+
+            List<FieldLoad> toRemove = new ArrayList<>();
+            Value result = unit instanceof AssignStmt
+                ? ((AssignStmt) unit).getLeftOp() : null;
+
+            for (Iterator<FieldLoad> it = out.iterator(); it.hasNext();) {
+                FieldLoad fl = it.next();
+                if (effect.writes.contains(fl.field.getName()) ||
+                    fl.base.equals(result) ||
+                    fl.value.equals(result)) {
+                    toRemove.add(fl);
+                }
+            }
+
+            for (FieldLoad fl : toRemove) out.remove(fl);
+            return false;
         }
 
-        if (!(unit instanceof AssignStmt)) return;
+        if (!(unit instanceof AssignStmt)) return false;
 
         AssignStmt stmt = (AssignStmt) unit;
         Value lhs = stmt.getLeftOp();
@@ -79,8 +128,9 @@ public class AvailableFieldLoadAnalysis
                 }
             }
 
+            if (options.rewrite) killLocal(out, x);
             for (FieldLoad fl : toAdd) out.add(fl);
-            return;
+            return false;
         }
 
         /* -------------------------
@@ -95,6 +145,12 @@ public class AvailableFieldLoadAnalysis
             Local base = (Local) fr.getBase();
             SootField field = fr.getField();
 
+            // Every read of a volatile field must reach memory
+            if (options.concurrent && isVolatile(field)) {
+                if (options.rewrite) killLocal(out, x);
+                return false;
+            }
+
             boolean redundant = false;
 
             for (Iterator<FieldLoad> it = in.iterator(); it.hasNext();) {
@@ -106,12 +162,12 @@ public class AvailableFieldLoadAnalysis
                 }
             }
 
-            if (redundant) {
-                reportRedundant(unit);
+            if (options.rewrite) {
+                killLocal(out, x);
+                if (base.equals(x)) return redundant;
             }
-
             out.add(new FieldLoad(base, field, x));
-            return;
+            return redundant;
         }
 
         /* -------------------------
@@ -124,21 +180,127 @@ public class AvailableFieldLoadAnalysis
 
             List<FieldLoad> toRemove = new ArrayList<>();
 
+            // Without alias information only a rewrite needs the
+            // conservative kill over all bases
             for (Iterator<FieldLoad> it = out.iterator(); it.hasNext();) {
                 FieldLoad fl = it.next();
-                if (fl.base.equals(base) &&
+                if ((options.rewrite || fl.base.equals(base)) &&
                     fl.field.equals(field)) {
                     toRemove.add(fl);
                 }
             }
 
             for (FieldLoad fl : toRemove) out.remove(fl);
+
+            // Store-to-load forwarding; constants were moved into
+            // temporaries beforehand
+            if (options.forward && rhs instanceof Local &&
+                !(options.concurrent && isVolatile(field))) {
+                out.add(new FieldLoad(base, field, (Local) rhs));
+            }
+        } else if (options.rewrite && lhs instanceof Local) {
+            killLocal(out, (Local) lhs);
+        }
+        return false;
+    }
+
+    static boolean isSyncPoint(Unit unit) {
+        if (unit instanceof MonitorStmt) return true;
+
+        Stmt stmt = (Stmt) unit;
+        if (stmt.containsInvokeExpr()) {
+            InvokeExpr invoke = stmt.getInvokeExpr();
+            SootMethod callee = invoke.getMethodRef().tryResolve();
+            if (callee == null || callee.isSynchronized()) return true;
+            // An override may be synchronized (e.g. Collections.synchronizedList)
+            return (invoke instanceof VirtualInvokeExpr || invoke instanceof InterfaceInvokeExpr) &&
+                   !callee.isFinal() && !callee.getDeclaringClass().isFinal();
+        }
+        if (stmt instanceof AssignStmt &&
+            ((AssignStmt) stmt).getRightOp() instanceof FieldRef) {
+            return isVolatile(((FieldRef) ((AssignStmt) stmt).getRightOp()).getField());
+        }
+        return false;
+    }
+
+    static boolean isVolatile(SootField field) {
+        return Modifier.isVolatile(field.getModifiers());
+    }
+
+    /* Only thread-local objects keep their facts across a sync point */
+    private static void killShared(FlowSet<FieldLoad> out, DfaOptions options) {
+        List<FieldLoad> toRemove = new ArrayList<>();
+
+        for (Iterator<FieldLoad> it = out.iterator(); it.hasNext();) {
+            FieldLoad fl = it.next();
+            if (!options.threadLocal.contains(fl.base)) toRemove.add(fl);
+        }
+
+        for (FieldLoad fl : toRemove) out.remove(fl);
+    }
+
+    /* The object under construction may be out of the callee's reach */
+    private static void killUnlessSurvives(FlowSet<FieldLoad> out, Stmt call,
+                                           ConstructorContext constructor) {
+        List<FieldLoad> toRemove = new ArrayList<>();
+
+        for (Iterator<FieldLoad> it = out.iterator(); it.hasNext();) {
+            FieldLoad fl = it.next();
+            if (!constructor.survives(call, fl)) toRemove.add(fl);
+        }
+
+        for (FieldLoad fl : toRemove) out.remove(fl);
+    }
+
+    /* Facts on x are stale once x is assigned */
+    private static void killLocal(FlowSet<FieldLoad> out, Local x) {
+        List<FieldLoad> toRemove = new ArrayList<>();
+
+        for (Iterator<FieldLoad> it = out.iterator(); it.hasNext();) {
+            FieldLoad fl = it.next();
+            if (fl.base.equals(x) || fl.value.equals(x)) toRemove.add(fl);
+        }
+
+        for (FieldLoad fl : toRemove) out.remove(fl);
+    }
+
+    /* -------------------------
+       Local that already holds the value loaded by unit, or null.
+       Only meaningful with the rewrite kills.
+     ------------------------- */
+    static Local replacementFor(FlowSet<FieldLoad> in, Unit unit) {
+        if (!(unit instanceof AssignStmt)) return null;
+
+        Value lhs = ((AssignStmt) unit).getLeftOp();
+        Value rhs = ((AssignStmt) unit).getRightOp();
+        if (!(lhs instanceof Local) || !(rhs instanceof InstanceFieldRef)) return null;
+
+        InstanceFieldRef fr = (InstanceFieldRef) rhs;
+        for (Iterator<FieldLoad> it = in.iterator(); it.hasNext();) {
+            FieldLoad fl = it.next();
+            if (fl.base.equals(fr.getBase()) &&
+                fl.field.equals(fr.getField()) &&
+                !fl.value.equals(lhs)) {
+                return fl.value;
+            }
+        }
+        return null;
+    }
+
+    public Map<Unit, Local> getReplacements() {
+        Map<Unit, Local> replacements = new LinkedHashMap<>();
+        for (Unit unit : graph) {
+            Local v = replacementFor(getFlowBefore(unit), unit);
+            if (v != null) replacements.put(unit, v);
         }
+        return replacements;
     }
 
-    private void reportRedundant(Unit u) {
+    /* Initializers are reported under their own tag */
+    static void reportRedundant(Unit u, DfaOptions options) {
         int line = u.getJavaSourceStartLineNumber();
-        System.out.println(
-            "[Redundant load] line " + line + ": " + u);
+        String tag = options.constructor != null
+            ? "[Redundant load in initializer]" : "[Redundant load]";
+        System.out.println(tag + " line " + line + ": " + u);
     }
 }
@@ -0,0 +1,248 @@
+import java.io.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+import java.util.stream.*;
+
+import soot.G;
+import soot.options.Options;
+
+/*
+ * Differential microbenchmarks: original classes vs. the jtp.dfa rewrite.
+ *
+ *   java BenchmarkHarness <class-dir> <out-dir> [Class.method ...] [-- soot args]
+ *       out-dir/original    copy of class-dir
+ *       out-dir/optimized   class-dir rewritten with -p jtp.dfa rewrite:true
+ *       out-dir/bench       JMH benchmark (LoadBenchmark.java) and run.sh
+ *   java BenchmarkHarness --compare <jmh-result.json>
+ *       throughput of both variants and the delta per entry method
+ *
+ * Any directory of compiled classes works, e.g. files/Test1. Entry methods
+ * default to main(String[]) and the public static methods without
+ * parameters of every class. The benchmark has a variant parameter; each
+ * variant is loaded by its own class loader below the platform loader, so
+ * both copies of a class live side by side in the benchmark JVM. Output of
+ * the entry methods is discarded while measuring. Soot arguments after --
+ * go to the rewrite, e.g. -- -p jtp.dfa forward:true.
+ */
+public class BenchmarkHarness {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--compare")) {
+            compare(Paths.get(args[1]));
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("Usage: java BenchmarkHarness <class-dir> <out-dir> [Class.method ...] [-- soot args]");
+            System.err.println("       java BenchmarkHarness --compare <jmh-result.json>");
+            return;
+        }
+
+        Path classes = Paths.get(args[0]).toAbsolutePath();
+        Path out = Paths.get(args[1]).toAbsolutePath();
+        List<String> entries = new ArrayList<>();
+        List<String> sootArgs = new ArrayList<>();
+        List<String> target = entries;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--") && target == entries) {
+                target = sootArgs;
+            } else {
+                target.add(args[i]);
+            }
+        }
+
+        copyClasses(classes, out.resolve("original"));
+        optimize(classes, out.resolve("optimized"), sootArgs);
+
+        if (entries.isEmpty()) entries = findEntries(out.resolve("original"));
+        if (entries.isEmpty()) {
+            System.err.println("No entry methods in " + classes + "; name them as Class.method");
+            return;
+        }
+
+        writeBenchmark(out, entries);
+    }
+
+    private static void copyClasses(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.walk(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!Files.isRegularFile(file)) continue;
+                Path copy = to.resolve(from.relativize(file).toString());
+                Files.createDirectories(copy.getParent());
+                Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /* Runs jtp.dfa with rewrite:true and writes class files */
+    private static void optimize(Path classes, Path to, List<String> extra) {
+        G.reset();
+        PA2.registerTransforms();
+        Options.v().set_keep_line_number(true);
+
+        List<String> sootArgs = new ArrayList<>(extra);
+        sootArgs.addAll(Arrays.asList(
+            "-cp", classes.toString(), "-pp",
+            "-process-dir", classes.toString(),
+            "-f", "c", "-d", to.toString(),
+            "-p", "jtp.dfa", "rewrite:true"));
+        soot.Main.main(sootArgs.toArray(new String[0]));
+    }
+
+    /* main(String[]) and public static no-argument methods */
+    private static List<String> findEntries(Path dir) throws IOException {
+        List<String> entries = new ArrayList<>();
+        List<String> names;
+        try (Stream<Path> files = Files.walk(dir)) {
+            names = files.map(dir::relativize).map(Path::toString)
+                    .filter(f -> f.endsWith(".class"))
+                    .map(f -> f.substring(0, f.length() - ".class".length()).replace(File.separatorChar, '.'))
+                    .sorted().collect(Collectors.toList());
+        }
+
+        try (URLClassLoader loader = new URLClassLoader(
+                new URL[] { dir.toUri().toURL() }, ClassLoader.getPlatformClassLoader())) {
+            for (String name : names) {
+                Class<?> cls;
+                try {
+                    cls = Class.forName(name, false, loader);
+                } catch (Throwable e) {
+                    continue;
+                }
+                for (Method m : cls.getDeclaredMethods()) {
+                    if (isEntry(m)) entries.add(name + "." + m.getName());
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static boolean isEntry(Method m) {
+        if (!Modifier.isPublic(m.getModifiers()) || !Modifier.isStatic(m.getModifiers())) return false;
+        if (m.getParameterCount() == 0) return true;
+        return m.getName().equals("main") && m.getParameterCount() == 1 &&
+               m.getParameterTypes()[0] == String[].class;
+    }
+
+    private static void writeBenchmark(Path out, List<String> entries) throws IOException {
+        Path bench = out.resolve("bench");
+        Files.createDirectories(bench);
+
+        List<String> src = new ArrayList<>();
+        src.add("import java.io.*;");
+        src.add("import java.lang.reflect.Method;");
+        src.add("import java.net.*;");
+        src.add("import java.util.concurrent.TimeUnit;");
+        src.add("import org.openjdk.jmh.annotations.*;");
+        src.add("");
+        src.add("// Generated by BenchmarkHarness from " + out);
+        src.add("@State(Scope.Benchmark)");
+        src.add("@BenchmarkMode(Mode.Throughput)");
+        src.add("@OutputTimeUnit(TimeUnit.SECONDS)");
+        src.add("@Fork(1)");
+        src.add("@Warmup(iterations = 3, time = 1)");
+        src.add("@Measurement(iterations = 5, time = 1)");
+        src.add("public class LoadBenchmark {");
+        src.add("");
+        src.add("    @Param({\"original\", \"optimized\"})");
+        src.add("    public String variant;");
+        src.add("");
+        src.add("    private final Method[] entries = new Method[" + entries.size() + "];");
+        src.add("    private PrintStream stdout;");
+        src.add("");
+        src.add("    @Setup(Level.Trial)");
+        src.add("    public void load() throws Exception {");
+        src.add("        URL dir = new File(" + literal(out.toString()) + ", variant).toURI().toURL();");
+        src.add("        ClassLoader loader = new URLClassLoader(new URL[] { dir }, ClassLoader.getPlatformClassLoader());");
+        for (int i = 0; i < entries.size(); i++) {
+            String entry = entries.get(i);
+            int dot = entry.lastIndexOf('.');
+            src.add("        entries[" + i + "] = lookup(loader, " + literal(entry.substring(0, dot))
+                    + ", " + literal(entry.substring(dot + 1)) + ");");
+        }
+        src.add("        stdout = System.out;");
+        src.add("        System.setOut(new PrintStream(OutputStream.nullOutputStream()));");
+        src.add("    }");
+        src.add("");
+        src.add("    @TearDown(Level.Trial)");
+        src.add("    public void restore() {");
+        src.add("        System.setOut(stdout);");
+        src.add("    }");
+        src.add("");
+        src.add("    private static Method lookup(ClassLoader loader, String cls, String name) throws Exception {");
+        src.add("        for (Method m : Class.forName(cls, true, loader).getMethods()) {");
+        src.add("            if (m.getName().equals(name) && m.getParameterCount() <= 1) return m;");
+        src.add("        }");
+        src.add("        throw new NoSuchMethodException(cls + \".\" + name);");
+        src.add("    }");
+        src.add("");
+        src.add("    private static Object call(Method m) throws Exception {");
+        src.add("        return m.getParameterCount() == 0 ? m.invoke(null) : m.invoke(null, (Object) new String[0]);");
+        src.add("    }");
+
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < entries.size(); i++) {
+            String name = entries.get(i).replaceAll("[^A-Za-z0-9_]", "_");
+            while (!used.add(name)) name += "_";
+            src.add("");
+            src.add("    @Benchmark");
+            src.add("    public Object " + name + "() throws Exception {");
+            src.add("        return call(entries[" + i + "]);");
+            src.add("    }");
+        }
+        src.add("}");
+        Files.write(bench.resolve("LoadBenchmark.java"), src, StandardCharsets.UTF_8);
+
+        // JMH is not a dependency of the analysis; run.sh takes it from JMH_CP
+        List<String> run = Arrays.asList(
+            "#!/bin/sh",
+            "# JMH_CP: jmh-core, jmh-generator-annprocess and their dependencies",
+            "set -e",
+            "cd \"$(dirname \"$0\")\"",
+            "mkdir -p classes",
+            "javac -cp \"$JMH_CP\" -d classes LoadBenchmark.java",
+            "java -cp \"classes:$JMH_CP\" org.openjdk.jmh.Main -rf json -rff result.json LoadBenchmark",
+            "java -cp " + literal(System.getProperty("java.class.path")) + " BenchmarkHarness --compare result.json");
+        Path script = bench.resolve("run.sh");
+        Files.write(script, run, StandardCharsets.UTF_8);
+        script.toFile().setExecutable(true);
+
+        System.out.println("[Benchmark] " + entries.size() + " entry method(s), run " + script);
+    }
+
+    private static String literal(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /* -------------------------
+       Throughput delta per benchmark from JMH's JSON result file
+     ------------------------- */
+    private static final Pattern RESULT = Pattern.compile(
+        "\"benchmark\"\\s*:\\s*\"([^\"]+)\".*?\"variant\"\\s*:\\s*\"([^\"]+)\".*?" +
+        "\"primaryMetric\"\\s*:\\s*\\{\\s*\"score\"\\s*:\\s*([-+0-9.eE]+)",
+        Pattern.DOTALL);
+
+    private static void compare(Path json) throws IOException {
+        String text = new String(Files.readAllBytes(json), StandardCharsets.UTF_8);
+
+        Map<String, double[]> scores = new TreeMap<>();
+        Matcher m = RESULT.matcher(text);
+        while (m.find()) {
+            String method = m.group(1).substring(m.group(1).lastIndexOf('.') + 1);
+            double[] s = scores.computeIfAbsent(method, k -> new double[] { Double.NaN, Double.NaN });
+            s[m.group(2).equals("original") ? 0 : 1] = Double.parseDouble(m.group(3));
+        }
+
+        System.out.println(String.format("%-40s %16s %16s %9s", "Method", "original ops/s", "optimized ops/s", "delta"));
+        for (Map.Entry<String, double[]> e : scores.entrySet()) {
+            double[] s = e.getValue();
+            System.out.println(String.format("%-40s %16.1f %16.1f %+8.1f%%",
+                e.getKey(), s[0], s[1], 100 * (s[1] - s[0]) / s[0]));
+        }
+    }
+}
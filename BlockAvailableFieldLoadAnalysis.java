@@ -0,0 +1,214 @@
+import java.util.*;
+
+import soot.*;
+import soot.jimple.*;
+import soot.toolkits.graph.*;
+import soot.toolkits.scalar.*;
+
+/*
+ * Block-level variant of AvailableFieldLoadAnalysis.
+ *
+ * Each basic block is folded once into a summary of the unit transfer
+ * functions, so the fixpoint only iterates over blocks. Redundant loads are
+ * reported afterwards by replaying each block from its fixpoint entry facts.
+ */
+public class BlockAvailableFieldLoadAnalysis
+        extends ForwardFlowAnalysis<Block, FlowSet<FieldLoad>> {
+
+    private final FlowSet<FieldLoad> emptySet =
+            new ArraySparseSet<>();
+
+    private final Map<Block, Summary> summaries = new HashMap<>();
+
+    private final DfaOptions options;
+
+    /* Redundant loads and the locals that hold their value, for rewriting */
+    private final Map<Unit, Local> replacements = new LinkedHashMap<>();
+
+    public BlockAvailableFieldLoadAnalysis(BlockGraph graph, DfaOptions options) {
+        super(graph);
+        this.options = options;
+        for (Block block : graph) {
+            summaries.put(block, summarize(block));
+        }
+        doAnalysis();
+        reportRedundantLoads(graph);
+    }
+
+    /* -------------------------
+       Fold the units of a block.
+       Stores kill by (base, field) and local assignments only move values
+       between locals, so the effect on incoming facts is: drop killed keys
+       and facts whose base is reassigned, then replay the assignments on
+       the set of locals holding the value. Facts created inside the block
+       are tracked directly.
+     ------------------------- */
+    private Summary summarize(Block block) {
+        Summary s = new Summary();
+
+        for (Unit unit : block) {
+            FlowSet<FieldLoad> next = emptySet.clone();
+            AvailableFieldLoadAnalysis.transfer(s.gen, unit, next, options);
+            s.gen = next;
+
+            if (options.concurrent && AvailableFieldLoadAnalysis.isSyncPoint(unit)) {
+                s.clearsShared = true;
+            }
+
+            if (unit instanceof InvokeStmt ||
+                (unit instanceof AssignStmt &&
+                 ((AssignStmt) unit).containsInvokeExpr())) {
+                PurityModel.Effect effect =
+                    options.model.lookup(((Stmt) unit).getInvokeExpr());
+                if (effect == null && options.constructor != null) {
+                    // Only facts on the object under construction survive
+                    s.calls.add((Stmt) unit);
+                } else if (effect == null) {
+                    // Nothing that entered the block survives a call
+                    s.clearsAll = true;
+                    s.calls.clear();
+                    s.kill.clear();
+                    s.killedFields.clear();
+                    s.redefined.clear();
+                    s.moves.clear();
+                } else {
+                    s.killedFields.addAll(effect.writes);
+                    if (unit instanceof AssignStmt) {
+                        Value lhs = ((AssignStmt) unit).getLeftOp();
+                        if (lhs instanceof Local) redefine(s, (Local) lhs);
+                    }
+                }
+                continue;
+            }
+
+            if (!(unit instanceof AssignStmt)) continue;
+
+            Value lhs = ((AssignStmt) unit).getLeftOp();
+            Value rhs = ((AssignStmt) unit).getRightOp();
+
+            if (lhs instanceof Local && rhs instanceof Local) {
+                s.moves.add(new Local[] { (Local) lhs, (Local) rhs });
+                if (options.rewrite) s.redefined.add((Local) lhs);
+            } else if (lhs instanceof InstanceFieldRef) {
+                InstanceFieldRef fr = (InstanceFieldRef) lhs;
+                if (options.rewrite)
+                    s.killedFields.add(fr.getField().getName());
+                else
+                    s.kill.add(Arrays.asList(fr.getBase(), fr.getField()));
+            } else if (lhs instanceof Local && options.rewrite) {
+                redefine(s, (Local) lhs);
+            }
+        }
+
+        return s;
+    }
+
+    private boolean survivesCalls(Summary s, FieldLoad fl) {
+        for (Stmt call : s.calls) {
+            if (!options.constructor.survives(call, fl)) return false;
+        }
+        return true;
+    }
+
+    private static void redefine(Summary s, Local x) {
+        s.redefined.add(x);
+        s.moves.add(new Local[] { x, null });
+    }
+
+    @Override
+    protected void flowThrough(FlowSet<FieldLoad> in,
+                               Block block,
+                               FlowSet<FieldLoad> out) {
+
+        Summary s = summaries.get(block);
+        out.clear();
+
+        if (!s.clearsAll) {
+            for (FieldLoad fl : in) {
+                if (s.kill.contains(Arrays.asList(fl.base, fl.field)) ||
+                    s.killedFields.contains(fl.field.getName()) ||
+                    s.redefined.contains(fl.base) ||
+                    (s.clearsShared && !options.threadLocal.contains(fl.base)) ||
+                    !survivesCalls(s, fl)) continue;
+
+                // Locals holding the loaded value at the end of the block
+                Set<Local> values = new HashSet<>();
+                values.add(fl.value);
+                for (Local[] move : s.moves) {
+                    if (move[1] != null && values.contains(move[1])) {
+                        values.add(move[0]);
+                    } else if (move[1] == null || options.rewrite) {
+                        values.remove(move[0]);
+                    }
+                }
+
+                for (Local v : values) out.add(new FieldLoad(fl.base, fl.field, v));
+            }
+        }
+
+        out.union(s.gen);
+    }
+
+    /* -------------------------
+       Unit detail is only rebuilt here, once the block facts are stable.
+       Replacements are collected on the same pass.
+     ------------------------- */
+    private void reportRedundantLoads(BlockGraph graph) {
+        for (Block block : graph) {
+            FlowSet<FieldLoad> current = getFlowBefore(block).clone();
+            for (Unit unit : block) {
+                FlowSet<FieldLoad> next = emptySet.clone();
+                Local replacement =
+                    AvailableFieldLoadAnalysis.replacementFor(current, unit);
+                if (replacement != null) replacements.put(unit, replacement);
+                if (AvailableFieldLoadAnalysis.transfer(current, unit, next, options)) {
+                    AvailableFieldLoadAnalysis.reportRedundant(unit, options);
+                }
+                current = next;
+            }
+        }
+    }
+
+    public Map<Unit, Local> getReplacements() {
+        return replacements;
+    }
+
+    @Override
+    protected FlowSet<FieldLoad> newInitialFlow() {
+        return emptySet.clone();
+    }
+
+    @Override
+    protected FlowSet<FieldLoad> entryInitialFlow() {
+        return emptySet.clone();
+    }
+
+    @Override
+    protected void merge(FlowSet<FieldLoad> in1,
+                         FlowSet<FieldLoad> in2,
+                         FlowSet<FieldLoad> out) {
+        // MUST analysis → intersection
+        in1.intersection(in2, out);
+    }
+
+    @Override
+    protected void copy(FlowSet<FieldLoad> src,
+                        FlowSet<FieldLoad> dst) {
+        src.copy(dst);
+    }
+
+    private class Summary {
+        boolean clearsAll = false;
+        /* A sync point drops the facts of objects other threads can see */
+        boolean clearsShared = false;
+        /* Unknown calls in a constructor, each a partial kill */
+        List<Stmt> calls = new ArrayList<>();
+        Set<List<Object>> kill = new HashSet<>();
+        Set<String> killedFields = new HashSet<>();
+        /* Locals assigned in the block; facts on such a base are dropped */
+        Set<Local> redefined = new HashSet<>();
+        /* Local assignments in order: {x, y} for x = y, {x, null} otherwise */
+        List<Local[]> moves = new ArrayList<>();
+        FlowSet<FieldLoad> gen = emptySet.clone();
+    }
+}
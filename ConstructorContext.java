@@ -0,0 +1,99 @@
+import java.util.*;
+
+import soot.*;
+import soot.jimple.*;
+import soot.toolkits.graph.*;
+
+/*
+ * Initialization state of `this` in <init> and <clinit>
+ * (-p jtp.dfa constructors:true).
+ *
+ * The object under construction is fresh: until `this` is passed to a
+ * call, stored or copied, no other code can reach it, so a call that does
+ * not receive `this` keeps the facts on `this`. super(...) is a limited
+ * kill point: it only drops the fields inherited from superclasses
+ * (overridable methods called by a superclass constructor are assumed not
+ * to write the subclass fields). A super() that only chains up to
+ * Object.<init> does not publish `this`. <clinit> has no `this` and keeps
+ * the usual kills.
+ */
+public class ConstructorContext {
+
+    private final Local thisLocal;
+    private final SootClass declaringClass;
+
+    /* Units that `this` may have escaped before */
+    private final Set<Unit> escapedBefore = new HashSet<>();
+
+    private ConstructorContext(Body body, UnitGraph graph) {
+        this.declaringClass = body.getMethod().getDeclaringClass();
+        this.thisLocal = body.getMethod().isStatic() ? null : body.getThisLocal();
+        if (thisLocal == null) return;
+
+        /* Everything reachable from a unit publishing `this` */
+        Deque<Unit> worklist = new ArrayDeque<>();
+        for (Unit u : body.getUnits()) {
+            if (publishesThis((Stmt) u)) worklist.addAll(graph.getSuccsOf(u));
+        }
+        while (!worklist.isEmpty()) {
+            Unit u = worklist.pop();
+            if (escapedBefore.add(u)) worklist.addAll(graph.getSuccsOf(u));
+        }
+    }
+
+    /* Context of an initializer, or null for any other method */
+    public static ConstructorContext of(Body body, UnitGraph graph) {
+        SootMethod m = body.getMethod();
+        if (!m.isConstructor() && !m.isStaticInitializer()) return null;
+        return new ConstructorContext(body, graph);
+    }
+
+    /* Does fl survive a call the purity model knows nothing about? */
+    public boolean survives(Stmt call, FieldLoad fl) {
+        if (thisLocal == null || escapedBefore.contains(call) ||
+            !thisLocal.equals(fl.base)) return false;
+
+        InvokeExpr invoke = call.getInvokeExpr();
+        if (isInitOfThis(invoke)) {
+            /* super(...) only writes inherited fields; this(...) writes all */
+            return !invoke.getMethodRef().getDeclaringClass().equals(declaringClass) &&
+                   fl.field.getDeclaringClass().equals(declaringClass);
+        }
+        return !usesThis(invoke);
+    }
+
+    private boolean publishesThis(Stmt stmt) {
+        if (stmt instanceof IdentityStmt || stmt instanceof IfStmt) return false;
+
+        if (stmt.containsInvokeExpr()) {
+            InvokeExpr invoke = stmt.getInvokeExpr();
+            if (isInitOfThis(invoke) && !invoke.getArgs().contains(thisLocal) &&
+                ThreadLocalObjects.isTrivialConstructor(invoke.getMethodRef().tryResolve(), 0)) return false;
+            if (usesThis(invoke)) return true;
+        }
+
+        if (stmt instanceof AssignStmt) {
+            /* this.f = x and x = this.f keep `this` where it is */
+            Value rhs = ((AssignStmt) stmt).getRightOp();
+            return rhs.equals(thisLocal) ||
+                   (rhs instanceof CastExpr && ((CastExpr) rhs).getOp().equals(thisLocal));
+        }
+
+        for (ValueBox box : stmt.getUseBoxes()) {
+            if (box.getValue().equals(thisLocal)) return true;
+        }
+        return false;
+    }
+
+    private boolean isInitOfThis(InvokeExpr invoke) {
+        return invoke instanceof SpecialInvokeExpr &&
+               ((SpecialInvokeExpr) invoke).getBase().equals(thisLocal) &&
+               invoke.getMethodRef().getName().equals("<init>");
+    }
+
+    private boolean usesThis(InvokeExpr invoke) {
+        if (invoke instanceof InstanceInvokeExpr &&
+            ((InstanceInvokeExpr) invoke).getBase().equals(thisLocal)) return true;
+        return invoke.getArgs().contains(thisLocal);
+    }
+}
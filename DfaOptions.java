@@ -0,0 +1,48 @@
+import java.util.*;
+
+import soot.Local;
+
+/*
+ * Settings of the jtp.dfa phase, shared by the unit- and block-level
+ * analyses.
+ */
+public class DfaOptions {
+
+    /* Side effects of library calls */
+    public final PurityModel model;
+
+    /*
+     * Redundant loads are replaced by the local that already holds the
+     * value. The kills then also have to cover stores through aliases
+     * (a store to f kills f on every base) and redefinitions of the locals
+     * a fact mentions.
+     */
+    public final boolean rewrite;
+
+    /* Field stores o.f = x make x available for later loads of o.f */
+    public final boolean forward;
+
+    /*
+     * Other threads may write shared objects. Volatile fields are never
+     * reused, and acquiring a lock or reading a volatile field drops the
+     * facts of every object that is not thread-local.
+     */
+    public final boolean concurrent;
+
+    /* Locals of the current body that only hold unpublished objects */
+    public final Set<Local> threadLocal;
+
+    /* Set while analyzing <init> or <clinit>, null otherwise */
+    public final ConstructorContext constructor;
+
+    public DfaOptions(PurityModel model, boolean rewrite, boolean forward,
+                      boolean concurrent, Set<Local> threadLocal,
+                      ConstructorContext constructor) {
+        this.model = model;
+        this.rewrite = rewrite;
+        this.forward = forward;
+        this.concurrent = concurrent;
+        this.threadLocal = threadLocal;
+        this.constructor = constructor;
+    }
+}
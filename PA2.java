@@ -10,16 +10,62 @@ public class PA2{
         //     "-main-class", "Test",
         //     "-process-dir", classPath
         // };
-        String[] sootArgs = {
+        // PA2's own flags come first: --lazy-startup, --startup-stats
+        boolean lazy = false, stats = false;
+        int own = 0;
+        for (; own < arg.length && arg[own].startsWith("--"); own++) {
+            if (arg[own].equals("--lazy-startup")) lazy = stats = true;
+            else if (arg[own].equals("--startup-stats")) stats = true;
+            else throw new IllegalArgumentException("Unknown option: " + arg[own]);
+        }
+        String[] sootArgs = lazy ? LAZY_ARGS : new String[] {
             "-cp", ".", "-pp",
             "-f", "J",
             "-w",
             "-main-class", "Test",	// specify the main class
             "Test"                 // list the classes to analyze
         };
-        AnalysisTransformer analysisTransformer = new AnalysisTransformer();
-        PackManager.v().getPack("jtp").add(new Transform("jtp.dfa",analysisTransformer));
+        // extra Soot arguments are passed through, e.g. -p jtp.dfa blocks:true
+        String[] allArgs = new String[sootArgs.length + arg.length - own];
+        System.arraycopy(arg, own, allArgs, 0, arg.length - own);
+        System.arraycopy(sootArgs, 0, allArgs, arg.length - own, sootArgs.length);
+        if (stats) StartupStats.begin();
+        registerTransforms();
+        if (stats) {
+            PackManager.v().getPack("jtp").insertBefore(
+                new Transform(StartupStats.PHASE, new StartupStats()), AccessorInliner.PHASE);
+        }
         Options.v().set_keep_line_number(true);
-        soot.Main.main(sootArgs);
+        soot.Main.main(allArgs);
+    }
+
+    /*
+     * --lazy-startup: no -w, since jtp.dfa is intraprocedural and the call
+     * graph only makes Soot resolve everything reachable in the JDK. JDK
+     * packages are excluded and kept at signatures; whatever is still
+     * missing becomes a phantom.
+     */
+    private static final String[] LAZY_ARGS = {
+        "-cp", ".", "-pp",
+        "-f", "J",
+        "-allow-phantom-refs",
+        "-no-bodies-for-excluded",
+        "-x", "java.*", "-x", "javax.*", "-x", "jdk.*", "-x", "sun.*", "-x", "com.sun.*",
+        "-main-class", "Test",
+        "Test"
+    };
+
+    /* jtp.accessors and jtp.dfa, also used by BenchmarkHarness */
+    static void registerTransforms() {
+        // -p jtp.accessors enabled:true → inline trivial getters/setters first
+        Transform accessors = new Transform(AccessorInliner.PHASE, new AccessorInliner());
+        accessors.setDeclaredOptions("enabled max-size");
+        accessors.setDefaultOptions("enabled:false max-size:4");
+        PackManager.v().getPack("jtp").add(accessors);
+        AnalysisTransformer analysisTransformer = new AnalysisTransformer();
+        Transform dfa = new Transform("jtp.dfa",analysisTransformer);
+        dfa.setDeclaredOptions("enabled blocks graph model rewrite forward concurrent constructors");
+        dfa.setDefaultOptions("enabled:true blocks:false graph:full model: rewrite:false forward:false concurrent:false constructors:false");
+        PackManager.v().getPack("jtp").add(dfa);
     }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+import java.util.*;
+
+import soot.*;
+import soot.jimple.*;
+import soot.jimple.toolkits.annotation.nullcheck.NullnessAnalysis;
+import soot.toolkits.graph.*;
+
+/*
+ * ExceptionalUnitGraph without the exceptional edges of units that cannot
+ * throw.
+ *
+ * The full graph links nearly every unit inside a trap to its handler, which
+ * turns each handler into a merge of everything in the try block and kills
+ * available loads there. Here an exceptional edge x -> h is only kept if x,
+ * or a unit right after x, may really throw into h. Asynchronous VM errors
+ * (OutOfMemoryError, StackOverflowError, ...) are ignored, as any unit could
+ * raise them.
+ */
+public class PrunedExceptionalUnitGraph extends UnitGraph {
+
+    private final ExceptionalUnitGraph full;
+    private final NullnessAnalysis nullness;
+
+    private int removedEdges = 0;
+    private int removedMerges = 0;
+
+    public PrunedExceptionalUnitGraph(ExceptionalUnitGraph full) {
+        super(full.getBody());
+        this.full = full;
+        this.nullness = new NullnessAnalysis(full);
+
+        int size = unitChain.size();
+        unitToSuccs = new HashMap<>(size * 2 + 1, 0.7f);
+        unitToPreds = new HashMap<>(size * 2 + 1, 0.7f);
+        buildUnexceptionalEdges(unitToSuccs, unitToPreds);
+
+        for (Unit x : unitChain) {
+            for (Unit h : full.getExceptionalSuccsOf(x)) {
+                if (keepEdge(x, h)) {
+                    addEdge(x, h);
+                } else {
+                    removedEdges++;
+                }
+            }
+        }
+
+        buildHeadsAndTails();
+
+        for (Unit u : unitChain) {
+            if (full.getPredsOf(u).size() > 1 && getPredsOf(u).size() <= 1) {
+                removedMerges++;
+            }
+        }
+    }
+
+    // x -> h models an exception raised by x itself or by one of its
+    // successors before that successor takes effect.
+    private boolean keepEdge(Unit x, Unit h) {
+        if (throwsTo(x, h)) return true;
+        for (Unit u : full.getSuccsOf(x)) {
+            if (throwsTo(u, h)) return true;
+        }
+        return false;
+    }
+
+    private boolean throwsTo(Unit u, Unit h) {
+        if (!canThrow(u)) return false;
+        for (ExceptionalUnitGraph.ExceptionDest dest : full.getExceptionDests(u)) {
+            if (dest.getHandlerNode() == h) return true;
+        }
+        return false;
+    }
+
+    private boolean canThrow(Unit u) {
+        if (u instanceof IdentityStmt ||
+            u instanceof GotoStmt ||
+            u instanceof NopStmt ||
+            u instanceof IfStmt) {
+            return false;
+        }
+
+        if (!(u instanceof AssignStmt)) return true;
+
+        AssignStmt stmt = (AssignStmt) u;
+        if (stmt.containsInvokeExpr() || stmt.containsArrayRef()) return true;
+
+        Value lhs = stmt.getLeftOp();
+        Value rhs = stmt.getRightOp();
+
+        // Static fields may trigger class initialization
+        if (lhs instanceof StaticFieldRef || rhs instanceof StaticFieldRef) return true;
+
+        // Field access only throws on a null base
+        InstanceFieldRef fr = null;
+        if (lhs instanceof InstanceFieldRef) fr = (InstanceFieldRef) lhs;
+        if (rhs instanceof InstanceFieldRef) fr = (InstanceFieldRef) rhs;
+        if (fr != null) {
+            return !nullness.isAlwaysNonNullBefore(u, (Immediate) fr.getBase());
+        }
+
+        // Local copies and constants
+        if (rhs instanceof Local || rhs instanceof Constant) return false;
+
+        if (rhs instanceof BinopExpr) {
+            return rhs instanceof DivExpr || rhs instanceof RemExpr;
+        }
+        if (rhs instanceof CastExpr) {
+            return !(((CastExpr) rhs).getCastType() instanceof PrimType);
+        }
+        if (rhs instanceof InstanceOfExpr) return false;
+
+        return true;
+    }
+
+    private void addEdge(Unit from, Unit to) {
+        List<Unit> succs = unitToSuccs.get(from);
+        if (succs == null) {
+            succs = new ArrayList<>();
+            unitToSuccs.put(from, succs);
+        }
+        if (!succs.contains(to)) succs.add(to);
+
+        List<Unit> preds = unitToPreds.get(to);
+        if (preds == null) {
+            preds = new ArrayList<>();
+            unitToPreds.put(to, preds);
+        }
+        if (!preds.contains(from)) preds.add(from);
+    }
+
+    public int getRemovedEdges() {
+        return removedEdges;
+    }
+
+    public int getRemovedMerges() {
+        return removedMerges;
+    }
+
+    public void report() {
+        System.out.println(
+            "[CFG pruning] " + body.getMethod().getSignature() +
+            ": removed " + removedEdges + " exceptional edges, " +
+            removedMerges + " merge points");
+    }
+
+    /* -------------------------
+       Basic blocks over the pruned edges
+     ------------------------- */
+    public BlockGraph toBlockGraph() {
+        return new PrunedBlockGraph(this);
+    }
+
+    private static class PrunedBlockGraph extends BlockGraph {
+        PrunedBlockGraph(PrunedExceptionalUnitGraph graph) {
+            super(graph);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soot.*;
+import soot.jimple.*;
+
+/*
+ * Side effects of library methods, read from a model file.
+ *
+ * Without a model every call kills all available loads. With one, a call to
+ * a pure or read-only method keeps them, and a call that writes only some
+ * fields of its receiver kills just the loads of those fields. The default
+ * JDK model is the jdk-purity.model resource; project models are added on
+ * top (later entries win).
+ *
+ * Lookups hash the signature of the SootMethodRef once and memoize the
+ * answer per ref, so a call site costs one map lookup in the transfer
+ * function.
+ */
+public class PurityModel {
+
+    public enum Kind { PURE, READ_ONLY, WRITES }
+
+    public static class Effect {
+        public final Kind kind;
+        /* Receiver fields written, by name; empty unless kind == WRITES */
+        public final Set<String> writes;
+
+        Effect(Kind kind, Set<String> writes) {
+            this.kind = kind;
+            this.writes = writes;
+        }
+    }
+
+    public static final String DEFAULT_RESOURCE = "/jdk-purity.model";
+
+    private static final Effect UNKNOWN = new Effect(null, Collections.emptySet());
+
+    private final Map<String, Effect> bySignature = new HashMap<>();
+    private final Map<SootMethodRef, Effect> byRef = new ConcurrentHashMap<>();
+
+    /* Types some application class extends or implements */
+    private Set<SootClass> overridable;
+
+    /* Model with the bundled JDK entries, or an empty one if it is missing */
+    public static PurityModel defaults() {
+        PurityModel model = new PurityModel();
+        try (InputStream in = PurityModel.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) {
+                System.err.println("Warning: " + DEFAULT_RESOURCE + " not found, calls are not modeled");
+            } else {
+                model.read(new InputStreamReader(in, "UTF-8"), DEFAULT_RESOURCE);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: could not read " + DEFAULT_RESOURCE + ": " + e.getMessage());
+        }
+        return model;
+    }
+
+    public void addFile(String path) throws IOException {
+        try (Reader in = new InputStreamReader(new FileInputStream(path), "UTF-8")) {
+            read(in, path);
+        }
+        byRef.clear();
+    }
+
+    private void read(Reader reader, String source) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            // Method names such as <init> contain '>', the effect does not
+            int end = line.lastIndexOf('>');
+            if (!line.startsWith("<") || end < 0) {
+                throw new IOException(source + ":" + lineNumber + ": expected <signature> effect");
+            }
+            String signature = line.substring(0, end + 1);
+            String[] effect = line.substring(end + 1).trim().split("\\s+");
+
+            bySignature.put(signature, parseEffect(effect, source, lineNumber));
+        }
+    }
+
+    private static Effect parseEffect(String[] words, String source, int lineNumber)
+            throws IOException {
+        switch (words[0]) {
+            case "pure":
+                if (words.length == 1) return new Effect(Kind.PURE, Collections.emptySet());
+                break;
+            case "readonly":
+                if (words.length == 1) return new Effect(Kind.READ_ONLY, Collections.emptySet());
+                break;
+            case "writes":
+                if (words.length == 2) {
+                    Set<String> fields = new HashSet<>(Arrays.asList(words[1].split(",")));
+                    return new Effect(Kind.WRITES, fields);
+                }
+                break;
+        }
+        throw new IOException(source + ":" + lineNumber + ": unknown effect '"
+                + String.join(" ", words) + "'");
+    }
+
+    /* Effect of the call, or null if it may do anything */
+    public Effect lookup(InvokeExpr invoke) {
+        SootMethodRef ref = invoke.getMethodRef();
+        Effect effect = byRef.get(ref);
+        if (effect == null) {
+            effect = find(ref);
+            byRef.put(ref, effect);
+        }
+        if (effect == UNKNOWN) return null;
+
+        // A virtual call may land in an application override
+        if ((invoke instanceof VirtualInvokeExpr || invoke instanceof InterfaceInvokeExpr)
+                && isOverridable(ref.getDeclaringClass())) {
+            return null;
+        }
+        return effect;
+    }
+
+    private Effect find(SootMethodRef ref) {
+        Effect effect = bySignature.get(ref.getSignature());
+        if (effect == null) {
+            effect = bySignature.get("<" + ref.getDeclaringClass().getName() + ": *>");
+        }
+        return effect == null ? UNKNOWN : effect;
+    }
+
+    private boolean isOverridable(SootClass c) {
+        return !c.isFinal() && overridable().contains(c);
+    }
+
+    private synchronized Set<SootClass> overridable() {
+        if (overridable == null) {
+            overridable = new HashSet<>();
+            for (SootClass app : Scene.v().getApplicationClasses()) {
+                addSupertypes(app, overridable);
+            }
+        }
+        return overridable;
+    }
+
+    private static void addSupertypes(SootClass c, Set<SootClass> into) {
+        for (SootClass i : c.getInterfaces()) {
+            if (into.add(i)) addSupertypes(i, into);
+        }
+        if (c.hasSuperclass() && into.add(c.getSuperclass())) {
+            addSupertypes(c.getSuperclass(), into);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import soot.*;
+
+/*
+ * Startup cost of a PA2 run (--lazy-startup, --startup-stats).
+ *
+ * The jtp.startup transform runs before every other jtp phase; the first
+ * body it sees marks the end of class loading (and of the call graph in
+ * whole-program mode). It then prints the time since begin(), the peak
+ * heap in between and how many classes were loaded at which level.
+ */
+public class StartupStats extends BodyTransformer {
+
+    public static final String PHASE = "jtp.startup";
+
+    private static long start;
+    private static final AtomicBoolean reported = new AtomicBoolean();
+
+    public static void begin() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        start = System.nanoTime();
+    }
+
+    @Override
+    protected void internalTransform(Body body, String phaseName, Map<String, String> options) {
+        if (reported.compareAndSet(false, true)) {
+            System.out.println(report());
+        }
+    }
+
+    public static String report() {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Scene scene = Scene.v();
+        return "[Startup] " + millis + " ms, peak heap " + (peakHeap() >> 20) + " MB, "
+                + scene.getApplicationClasses().size() + " application / "
+                + scene.getLibraryClasses().size() + " library / "
+                + scene.getPhantomClasses().size() + " phantom classes";
+    }
+
+    /* sum of the peaks of the heap pools, an upper bound of the real peak */
+    public static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.*;
+
+import soot.*;
+import soot.jimple.*;
+
+/*
+ * Locals that only ever hold objects no other thread can see.
+ *
+ * A local qualifies when every definition allocates a fresh object and the
+ * local is only used as the base of field accesses, as a monitor, in
+ * comparisons, and as the receiver of a constructor that does nothing but
+ * chain up to Object.<init>. Anything else (copies, calls, stores of the
+ * local, returns, throws) may publish the object, so the local is dropped.
+ * Loads through such a local cannot be affected by other threads.
+ */
+public class ThreadLocalObjects {
+
+    public static Set<Local> of(Body body) {
+        Set<Local> candidates = new HashSet<>();
+        Set<Local> rejected = new HashSet<>();
+
+        for (Unit u : body.getUnits()) {
+            for (ValueBox box : u.getDefBoxes()) {
+                if (!(box.getValue() instanceof Local)) continue;
+                Local x = (Local) box.getValue();
+                if (u instanceof AssignStmt &&
+                    ((AssignStmt) u).getRightOp() instanceof NewExpr) {
+                    candidates.add(x);
+                } else {
+                    rejected.add(x);
+                }
+            }
+        }
+        candidates.removeAll(rejected);
+
+        for (Unit u : body.getUnits()) {
+            if (candidates.isEmpty()) break;
+            for (ValueBox box : u.getUseBoxes()) {
+                Value v = box.getValue();
+                if (candidates.contains(v) && publishes(u, (Local) v)) {
+                    candidates.remove(v);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /* May the use of x in u make x's object reachable from elsewhere? */
+    private static boolean publishes(Unit u, Local x) {
+        if (u instanceof MonitorStmt || u instanceof IfStmt) return false;
+
+        if (u instanceof InvokeStmt) {
+            InvokeExpr invoke = ((InvokeStmt) u).getInvokeExpr();
+            return !(invoke instanceof SpecialInvokeExpr) ||
+                   !((SpecialInvokeExpr) invoke).getBase().equals(x) ||
+                   invoke.getArgs().contains(x) ||
+                   !isTrivialConstructor(invoke.getMethodRef().tryResolve(), 0);
+        }
+
+        if (u instanceof AssignStmt) {
+            AssignStmt stmt = (AssignStmt) u;
+            Value lhs = stmt.getLeftOp();
+            Value rhs = stmt.getRightOp();
+            if (rhs.equals(x) || stmt.containsInvokeExpr()) return true;
+            // x.f = v and v = x.f only touch x's own fields
+            if (lhs instanceof InstanceFieldRef &&
+                ((InstanceFieldRef) lhs).getBase().equals(x)) return false;
+            if (rhs instanceof InstanceFieldRef) return false;
+            return !(rhs instanceof InstanceOfExpr || rhs instanceof ConditionExpr);
+        }
+
+        return true;
+    }
+
+    /* Chains up to Object.<init> without touching anything else */
+    static boolean isTrivialConstructor(SootMethod ctor, int depth) {
+        if (ctor == null || !ctor.isConstructor()) return false;
+        if (ctor.getDeclaringClass().getName().equals("java.lang.Object")) return true;
+        if (depth > 8 || !ctor.isConcrete()) return false;
+
+        Body body;
+        try {
+            body = ctor.retrieveActiveBody();
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        for (Unit u : body.getUnits()) {
+            if (u instanceof IdentityStmt || u instanceof ReturnVoidStmt) continue;
+            if (u instanceof InvokeStmt) {
+                InvokeExpr invoke = ((InvokeStmt) u).getInvokeExpr();
+                if (invoke instanceof SpecialInvokeExpr &&
+                    ((SpecialInvokeExpr) invoke).getBase() == body.getThisLocal() &&
+                    isTrivialConstructor(invoke.getMethodRef().tryResolve(), depth + 1)) {
+                    continue;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+import soot.*;
+
+import java.util.*;
+
+// Access-path facts of bounded length (--access-paths=K).
+//
+// A chain a.f.g is loaded as t = a.f; u = t.g. The available fact
+// a.f -> t binds t to the path a.f, so the second load also generates the
+// path fact a.f.g -> u. When the chain is loaded again through other
+// temporaries, v = a.f; w = v.g, the path of v is a.f again and w = v.g is
+// matched against a.f.g, so the whole chain is reused from u.
+//
+// Paths hold at most K fields. Path facts are killed by any store to, or
+// modeled write of, a field on the path, because the objects in the middle
+// of the path are not tracked; by any call that kills loads; and by
+// reassigning their base or target local.
+class AccessPaths {
+
+    // Fact giving the shortest path held by local, or null
+    static PA2.FieldLoad pathOf(Set<PA2.FieldLoad> facts, Value local) {
+        PA2.FieldLoad best = null;
+        for (PA2.FieldLoad fl : facts) {
+            if (local.equals(fl.target) &&
+                (best == null || fl.prefix.size() < best.prefix.size())) {
+                best = fl;
+            }
+        }
+        return best;
+    }
+
+    // Path of via followed by field, or null if it would exceed k fields
+    static PA2.FieldLoad extend(PA2.FieldLoad via, SootField field, Value target, int k) {
+        if (via.prefix.size() + 2 > k) return null;
+        List<SootField> prefix = new ArrayList<>(via.prefix);
+        prefix.add(via.field);
+        return new PA2.FieldLoad(via.base, Collections.unmodifiableList(prefix), field, target);
+    }
+
+    // Available path fact for base.field, reached through the path of base
+    static PA2.FieldLoad lookup(Set<PA2.FieldLoad> facts, Value base, SootField field, int k) {
+        PA2.FieldLoad via = pathOf(facts, base);
+        if (via == null) return null;
+
+        PA2.FieldLoad key = extend(via, field, null, k);
+        if (key == null) return null;
+        for (PA2.FieldLoad fl : facts) {
+            if (fl.equals(key) && !base.equals(fl.target)) return fl;
+        }
+        return null;
+    }
+
+    // Does a write to field invalidate the path fact?
+    static boolean touches(PA2.FieldLoad path, SootField field) {
+        return path.field.equals(field) || path.prefix.contains(field);
+    }
+
+    static boolean touches(PA2.FieldLoad path, Set<String> fieldNames) {
+        if (fieldNames.contains(path.field.getName())) return true;
+        for (SootField f : path.prefix) {
+            if (fieldNames.contains(f.getName())) return true;
+        }
+        return false;
+    }
+}
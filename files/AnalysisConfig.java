@@ -0,0 +1,405 @@
+import java.util.*;
+
+// Command line switches understood by PA2.
+//
+//   java PA2 <TestcaseFolder> [--option[=value] ...]
+class AnalysisConfig {
+
+    static final String ALIAS_PRECISE = "precise";
+    static final String ALIAS_FAST = "fast";
+    static final String ALIAS_HYBRID = "hybrid";
+
+    static final String PTA_INTRA = "intra";
+    static final String PTA_SPARK = "spark";
+
+    static final String FORMAT_TEXT = "text";
+    static final String FORMAT_JSONL = "jsonl";
+    static final String FORMAT_SARIF = "sarif";
+
+    static final int DEFAULT_SORT_RUN = 100000;
+    static final int DEFAULT_QUEUE_DEPTH = 32;
+
+    String testFolder;
+
+    // Iterate the available loads fixpoint over basic blocks instead of units.
+    boolean blockMode = false;
+
+    // Reject aliases between incompatible declared types before points-to checks.
+    boolean typeFilter = true;
+
+    // precise: flow-sensitive PointsToAnalysis only
+    // fast:    Steensgaard unification classes only
+    // hybrid:  unification classes answer "no alias" before points-to sets
+    String aliasMode = ALIAS_PRECISE;
+
+    // Methods with more units than this run in fast mode (0 = never)
+    int fastAbove = 0;
+
+    // Methods with more units than this keep their per-unit points-to sets
+    // and available loads in memory-mapped files (0 = never)
+    int spillThreshold = 0;
+
+    // Points-to backend of the precise and hybrid modes: the flow-sensitive
+    // intraprocedural analysis, or SPARK over the whole program
+    String pta = PTA_INTRA;
+
+    // Field stores make the stored value available to later loads
+    boolean forwardStores = false;
+
+    // Report field stores overwritten before any read, and optionally
+    // delete them from the Jimple output
+    boolean deadStores = false;
+    boolean deleteDeadStores = false;
+
+    // Replace fields of non-escaping allocations by locals
+    boolean scalarReplace = false;
+
+    // Execution samples (JFR recording or CSV); only hot methods are analyzed
+    String profile = null;
+    int hotThreshold = 1;
+
+    // Order results by estimated dynamic savings instead of by line
+    boolean rank = false;
+
+    // Also analyze <init> and <clinit>, reported in their own section
+    boolean constructors = false;
+
+    // Other threads may write objects that escape the method
+    boolean concurrent = false;
+
+    // Write classes that count executed and avoidable loads (LoadCounters)
+    boolean instrument = false;
+
+    // Output of the redundant loads; everything but the in-memory text
+    // report is written while the methods are analyzed (ResultSink)
+    String format = FORMAT_TEXT;
+    String resultsFile = null;
+    // Results per external sort run, 0 for the in-memory text report
+    int sortRunSize = 0;
+
+    // Where transformed bodies are written
+    String outputDir = "sootOutput";
+
+    // State file of --changed-only: classes unchanged since it was written
+    // are skipped, and a run without changes does not start Soot at all
+    String changedOnly = null;
+
+    // Dependencies of the analyzed classes, added to the Soot classpath
+    String classpath = null;
+
+    // Load only application classes with bodies; the JDK is excluded and
+    // resolved to signatures or phantoms when referenced
+    boolean lazyStartup = false;
+
+    // Print startup time, peak heap and loaded classes
+    boolean startupStats = false;
+
+    // Analysis threads of the retrieve/analyze/emit pipeline (0 = one
+    // method after the other) and the methods it may hold at once
+    int pipelineThreads = 0;
+    int queueDepth = DEFAULT_QUEUE_DEPTH;
+
+    // List of class directories analyzed by a pool of worker JVMs instead
+    // of one folder (ModuleCoordinator), the pool size and the time one
+    // module may take in seconds (0 = unlimited)
+    String modulesFile = null;
+    int workers = Runtime.getRuntime().availableProcessors();
+    int moduleTimeout = 0;
+
+    // Started by the coordinator: analyze the modules named on stdin
+    boolean worker = false;
+
+    // Longest access path tracked as a fact, in fields (0 = single loads)
+    int accessPaths = 0;
+
+    // Project purity models, read after the bundled JDK model
+    List<String> modelFiles = new ArrayList<>();
+
+    static AnalysisConfig parse(String[] args) {
+        AnalysisConfig config = new AnalysisConfig();
+
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                if (config.testFolder != null) {
+                    System.err.println("Unexpected argument: " + arg);
+                    return null;
+                }
+                config.testFolder = arg;
+                continue;
+            }
+
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg : arg.substring(0, eq);
+            String value = eq < 0 ? null : arg.substring(eq + 1);
+
+            switch (name) {
+                case "--blocks":
+                    config.blockMode = true;
+                    break;
+                case "--no-type-filter":
+                    config.typeFilter = false;
+                    break;
+                case "--alias":
+                    if (!ALIAS_PRECISE.equals(value) &&
+                        !ALIAS_FAST.equals(value) &&
+                        !ALIAS_HYBRID.equals(value)) {
+                        System.err.println("Unknown alias mode: " + value);
+                        return null;
+                    }
+                    config.aliasMode = value;
+                    break;
+                case "--pta":
+                    if (!PTA_INTRA.equals(value) && !PTA_SPARK.equals(value)) {
+                        System.err.println("Unknown points-to backend: " + value);
+                        return null;
+                    }
+                    config.pta = value;
+                    break;
+                case "--forward-stores":
+                    config.forwardStores = true;
+                    break;
+                case "--dead-stores":
+                    if (value != null && !value.equals("delete")) {
+                        System.err.println("Unknown dead store action: " + value);
+                        return null;
+                    }
+                    config.deadStores = true;
+                    config.deleteDeadStores = value != null;
+                    break;
+                case "--scalar-replace":
+                    config.scalarReplace = true;
+                    break;
+                case "--profile":
+                    if (value == null || value.isEmpty()) {
+                        System.err.println("Expected a file: --profile=<recording.jfr|samples.csv>");
+                        return null;
+                    }
+                    config.profile = value;
+                    // Results are weighted by samples
+                    config.rank = true;
+                    break;
+                case "--hot-threshold":
+                    config.hotThreshold = intValue(name, value);
+                    if (config.hotThreshold < 0) return null;
+                    break;
+                case "--rank":
+                    config.rank = true;
+                    break;
+                case "--constructors":
+                    config.constructors = true;
+                    break;
+                case "--concurrent":
+                    config.concurrent = true;
+                    break;
+                case "--format":
+                    if (!FORMAT_TEXT.equals(value) && !FORMAT_JSONL.equals(value) &&
+                        !FORMAT_SARIF.equals(value)) {
+                        System.err.println("Unknown format: " + value);
+                        return null;
+                    }
+                    config.format = value;
+                    break;
+                case "--results":
+                    if (value == null || value.isEmpty()) {
+                        System.err.println("Expected a file: --results=<path>");
+                        return null;
+                    }
+                    config.resultsFile = value;
+                    break;
+                case "--changed-only":
+                    if (value == null || value.isEmpty()) {
+                        System.err.println("Expected a file: --changed-only=<state file>");
+                        return null;
+                    }
+                    config.changedOnly = value;
+                    break;
+                case "--classpath":
+                    if (value == null || value.isEmpty()) {
+                        System.err.println("Expected a path: --classpath=<entries>");
+                        return null;
+                    }
+                    config.classpath = value;
+                    break;
+                case "--lazy-startup":
+                    config.lazyStartup = true;
+                    config.startupStats = true;
+                    break;
+                case "--startup-stats":
+                    config.startupStats = true;
+                    break;
+                case "--pipeline":
+                    config.pipelineThreads = value == null
+                            ? Runtime.getRuntime().availableProcessors() : intValue(name, value);
+                    if (config.pipelineThreads <= 0) return null;
+                    break;
+                case "--queue-depth":
+                    config.queueDepth = intValue(name, value);
+                    if (config.queueDepth <= 0) return null;
+                    break;
+                case "--modules":
+                    if (value == null || value.isEmpty()) {
+                        System.err.println("Expected a file: --modules=<list of class directories>");
+                        return null;
+                    }
+                    config.modulesFile = value;
+                    break;
+                case "--workers":
+                    config.workers = intValue(name, value);
+                    if (config.workers <= 0) return null;
+                    break;
+                case "--module-timeout":
+                    config.moduleTimeout = intValue(name, value);
+                    if (config.moduleTimeout < 0) return null;
+                    break;
+                case "--worker":
+                    config.worker = true;
+                    break;
+                case "--external-sort":
+                    config.sortRunSize = value == null ? DEFAULT_SORT_RUN : intValue(name, value);
+                    if (config.sortRunSize <= 0) return null;
+                    break;
+                case "--instrument":
+                    config.instrument = true;
+                    break;
+                case "--output-dir":
+                    if (value == null || value.isEmpty()) {
+                        System.err.println("Expected a directory: --output-dir=<path>");
+                        return null;
+                    }
+                    config.outputDir = value;
+                    break;
+                case "--model":
+                    if (value == null || value.isEmpty()) {
+                        System.err.println("Expected a file: --model=<path>");
+                        return null;
+                    }
+                    config.modelFiles.add(value);
+                    break;
+                case "--access-paths":
+                    config.accessPaths = intValue(name, value);
+                    if (config.accessPaths < 0) return null;
+                    break;
+                case "--spill-threshold":
+                    config.spillThreshold = intValue(name, value);
+                    if (config.spillThreshold < 0) return null;
+                    break;
+                case "--fast-above":
+                    config.fastAbove = intValue(name, value);
+                    if (config.fastAbove < 0) return null;
+                    break;
+                default:
+                    System.err.println("Unknown option: " + arg);
+                    return null;
+            }
+        }
+
+        if (config.sortRunSize > 0 && !config.format.equals(FORMAT_TEXT)) {
+            System.err.println("--external-sort only applies to --format=text");
+            return null;
+        }
+
+        // The sorted report is in line order; ranking needs all results
+        if (config.sortRunSize > 0 && config.rank) {
+            System.err.println("--external-sort cannot be combined with --rank or --profile");
+            return null;
+        }
+
+        // Path facts are killed through their target, which block
+        // summaries cannot express
+        if (config.blockMode && config.accessPaths > 0) {
+            System.err.println("--blocks cannot be combined with --access-paths");
+            return null;
+        }
+
+        // A rewritten body may be read meanwhile by another thread, e.g. a
+        // constructor through EscapeAnalysis.isTrivialConstructor
+        if (config.pipelineThreads > 0 && config.rewritesBodies()) {
+            System.err.println("--pipeline cannot be combined with options that rewrite bodies");
+            return null;
+        }
+
+        if (config.modulesFile != null) {
+            if (config.testFolder != null) {
+                System.err.println("Give either a folder or --modules");
+                return null;
+            }
+            // Modules would share one state file and one output directory
+            if (config.changedOnly != null || config.rewritesBodies()) {
+                System.err.println("--modules cannot be combined with --changed-only or rewrites");
+                return null;
+            }
+            // Workers write text reports with --external-sort
+            if (config.rank && config.format.equals(FORMAT_TEXT)) {
+                System.err.println("--modules with --format=text cannot be combined with --rank or --profile");
+                return null;
+            }
+            return config;
+        }
+
+        return config.testFolder == null && !config.worker ? null : config;
+    }
+
+    // Is the per-unit trace printed? Not with --pipeline, where analysis
+    // threads would interleave their traces on one stream
+    boolean trace() {
+        return pipelineThreads == 0;
+    }
+
+    // Are machine-readable results written to stdout?
+    boolean resultsOnStdout() {
+        return !format.equals(FORMAT_TEXT) && resultsFile == null;
+    }
+
+    // Does any option change method bodies (and so produce Jimple output)?
+    boolean rewritesBodies() {
+        return deleteDeadStores || scalarReplace || instrument;
+    }
+
+    // Non-negative integer option value, or -1 after reporting the error
+    private static int intValue(String name, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= 0) return n;
+        } catch (NumberFormatException | NullPointerException e) {
+            // reported below
+        }
+        System.err.println("Expected a non-negative number: " + name + "=" + value);
+        return -1;
+    }
+
+    static void printUsage() {
+        System.err.println("Usage: java PA2 <TestcaseFolder> [options]");
+        System.err.println("       java PA2 --modules=FILE [--workers=N] [--module-timeout=S] [options]");
+        System.err.println("  --blocks          summarize each basic block into one gen/kill step");
+        System.err.println("  --no-type-filter  always run the points-to alias checks");
+        System.err.println("  --alias=MODE      precise | fast | hybrid (default precise)");
+        System.err.println("  --pta=BACKEND     intra | spark (default intra)");
+        System.err.println("  --forward-stores  loads after a store reuse the stored value");
+        System.err.println("  --dead-stores[=delete]  report (and delete) stores overwritten before any read");
+        System.err.println("  --scalar-replace  replace fields of non-escaping allocations by locals");
+        System.err.println("  --profile=FILE    only analyze methods sampled in a JFR recording or CSV");
+        System.err.println("  --hot-threshold=N minimum samples of an analyzed method (default 1)");
+        System.err.println("  --rank            order results by estimated loads saved");
+        System.err.println("  --constructors    also analyze <init> and <clinit> (reported separately)");
+        System.err.println("  --concurrent      honor volatile fields, monitors and synchronized calls");
+        System.err.println("  --format=F        text (default), jsonl or sarif; jsonl and sarif are streamed");
+        System.err.println("  --results=FILE    write the redundant loads to FILE instead of stdout");
+        System.err.println("  --external-sort[=N] sorted text report holding at most N results in memory");
+        System.err.println("  --changed-only=FILE  only analyze classes changed since FILE was written and");
+        System.err.println("                    classes using them (all classes with --pta=spark)");
+        System.err.println("  --classpath=PATH  dependencies of the analyzed classes");
+        System.err.println("  --lazy-startup    only load application classes with bodies (implies --startup-stats)");
+        System.err.println("  --startup-stats   print startup time, peak heap and loaded classes");
+        System.err.println("  --pipeline[=N]    retrieve, analyze (on N threads) and emit methods concurrently");
+        System.err.println("  --queue-depth=N   methods held by the pipeline at once (default 32)");
+        System.err.println("  --modules=FILE    analyze the class directories listed in FILE in worker JVMs");
+        System.err.println("  --workers=N       number of worker JVMs (default: available processors)");
+        System.err.println("  --module-timeout=S  restart a worker that spends more than S seconds on a module");
+        System.err.println("  --instrument      write classes counting executed and avoidable loads");
+        System.err.println("  --output-dir=DIR  where transformed Jimple is written (default sootOutput)");
+        System.err.println("  --model=FILE      add a purity model for library calls (repeatable)");
+        System.err.println("  --access-paths=K  track chains like a.f.g of up to K fields");
+        System.err.println("  --fast-above=N    use fast alias mode for methods with more than N units");
+        System.err.println("  --spill-threshold=N  keep per-unit facts of methods with more than N units off the heap");
+    }
+}
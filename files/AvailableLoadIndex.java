@@ -0,0 +1,153 @@
+import soot.*;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.*;
+
+// The loads available at one program point, indexed for redundancy queries.
+//
+// A load x = o.f is redundant with an available load when
+//   - the field contents share an abstract object (the contents are compared
+//     regardless of the field, so a.f2 = a.f1 makes a.f2 reusable from the
+//     local that holds a.f1), or
+//   - neither field points to anything and both loads read the same field
+//     through the same base.
+// Only objects the backend accepts as identifying a value count as
+// contents here (PointsToBackend.identifiesValue); placeholders for
+// objects from outside the method do not.
+// The first criterion is answered from an abstract object -> load map, the
+// second from a field -> base -> load map, so a query costs one lookup per
+// abstract object instead of a points-to intersection per available load.
+// When several loads match, the first one in iteration order of the
+// available set wins, as with a linear scan.
+//
+// The index is built for one queried access: loads of a field whose declared
+// type, or whose unification class, cannot hold the same object are left out
+// before their points-to set is computed. Backends that report no field
+// contents (fast alias mode) leave only the same-base, same-field criterion.
+//
+// The field contents of the available loads come from a Contents memo that
+// follows the method in unit order, so a load's contents are computed once
+// per straight-line run instead of once per later query.
+class AvailableLoadIndex {
+
+    private final PointsToBackend pointsTo;
+
+    private final List<PA2.FieldLoad> loads = new ArrayList<>();
+
+    // abstract object held by the loaded field -> position in loads
+    private final Map<String, Integer> byObject = new HashMap<>();
+
+    // field name -> base -> position in loads, for fields pointing to nothing
+    private final Map<String, Map<Value, Integer>> byFieldAndBase = new HashMap<>();
+
+    AvailableLoadIndex(Set<PA2.FieldLoad> available, Contents memo,
+                       SteensgaardAliasOracle oracle, TypeAliasFilter types,
+                       Unit unit, Value queriedBase, SootField queried) {
+        this.pointsTo = memo.pointsTo;
+        for (PA2.FieldLoad load : available) {
+            // Access paths are matched separately (AccessPaths.lookup)
+            if (!load.prefix.isEmpty()) continue;
+
+            boolean sameName = load.field.getName().equals(queried.getName());
+            if (!sameName) {
+                if (!types.mayAlias(load.field.getType(), queried.getType())) continue;
+                if (oracle != null &&
+                    !oracle.mayAliasContents(load.base, load.field, queriedBase, queried)) continue;
+            }
+
+            int position = loads.size();
+            loads.add(load);
+
+            Set<String> contents = evidence(memo.of(load, unit));
+
+            if (contents.isEmpty()) {
+                byFieldAndBase
+                        .computeIfAbsent(load.field.getName(), k -> new HashMap<>())
+                        .putIfAbsent(load.base, position);
+            } else {
+                for (String obj : contents) {
+                    byObject.putIfAbsent(obj, position);
+                }
+            }
+        }
+    }
+
+    // Available load that makes base.field redundant, or null.
+    // contents is the points-to set of base.field at this program point.
+    PA2.FieldLoad lookup(Value base, SootField field, Set<String> pointsToSet) {
+        Set<String> contents = evidence(pointsToSet);
+        if (contents.isEmpty()) {
+            Map<Value, Integer> byBase = byFieldAndBase.get(field.getName());
+            Integer position = byBase == null ? null : byBase.get(base);
+            return position == null ? null : loads.get(position);
+        }
+
+        int best = Integer.MAX_VALUE;
+        for (String obj : contents) {
+            Integer position = byObject.get(obj);
+            if (position != null && position < best) {
+                best = position;
+            }
+        }
+        return best == Integer.MAX_VALUE ? null : loads.get(best);
+    }
+
+    private Set<String> evidence(Set<String> contents) {
+        Set<String> result = null;
+        for (String obj : contents) {
+            if (!pointsTo.identifiesValue(obj)) {
+                if (result == null) result = new HashSet<>(contents);
+                result.remove(obj);
+            }
+        }
+        return result == null ? contents : result;
+    }
+
+    // Field contents of available loads, carried from one unit to the next.
+    //
+    // The contents of o.f after a unit depend on the points-to set of o
+    // there (the heap of the backends is flow-insensitive). That set only
+    // changes where o is assigned, or at a merge of paths, so a load's
+    // contents stay valid along straight-line code until its base is
+    // redefined. advance() must see every unit in body order.
+    static final class Contents {
+        private final PointsToBackend pointsTo;
+        private final UnitGraph graph;
+        // By identity: facts are carried unchanged from unit to unit
+        private final Map<PA2.FieldLoad, Set<String>> contents = new IdentityHashMap<>();
+        private Unit previous;
+
+        int queries = 0;
+        int reused = 0;
+
+        Contents(PointsToBackend pointsTo, UnitGraph graph) {
+            this.pointsTo = pointsTo;
+            this.graph = graph;
+        }
+
+        void advance(Unit unit) {
+            List<Unit> preds = graph.getPredsOf(unit);
+            if (preds.size() != 1 || preds.get(0) != previous) {
+                contents.clear();
+            } else {
+                for (ValueBox box : unit.getDefBoxes()) {
+                    Value defined = box.getValue();
+                    contents.keySet().removeIf(load -> load.base.equals(defined));
+                }
+            }
+            previous = unit;
+        }
+
+        Set<String> of(PA2.FieldLoad load, Unit unit) {
+            queries++;
+            Set<String> result = contents.get(load);
+            if (result != null) {
+                reused++;
+                return result;
+            }
+            result = pointsTo.getFieldPointsToSet(load.base, load.field, unit);
+            contents.put(load, result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+import soot.Unit;
+
+import java.util.Set;
+
+// Read side of an available loads analysis, independent of whether the
+// fixpoint was computed per unit or per basic block.
+interface AvailableLoadsQuery {
+
+    // Loads available on every path reaching the given unit.
+    Set<PA2.FieldLoad> loadsBefore(Unit unit);
+}
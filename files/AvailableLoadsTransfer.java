@@ -0,0 +1,245 @@
+import soot.*;
+import soot.jimple.*;
+
+import java.util.*;
+
+// Unit-level transfer function of the available loads analysis. It is kept
+// outside the flow analysis so the block-level driver can summarize and
+// replay the very same rules.
+class AvailableLoadsTransfer {
+    
+    // The oracle is only set in hybrid alias mode (see AnalysisConfig)
+    private PointsToBackend pointsTo;
+    private SteensgaardAliasOracle oracle;
+    private TypeAliasFilter types;
+    private PurityModel model;
+    // Only set with --concurrent (and the passes that need it)
+    private EscapeAnalysis escape;
+    // Only set when analyzing an instance constructor
+    private ConstructorContext constructor;
+    private AnalysisConfig config;
+    
+    public AvailableLoadsTransfer(PointsToBackend pointsTo,
+                                  SteensgaardAliasOracle oracle,
+                                  TypeAliasFilter types,
+                                  PurityModel model,
+                                  EscapeAnalysis escape,
+                                  ConstructorContext constructor,
+                                  AnalysisConfig config) {
+        this.pointsTo = pointsTo;
+        this.oracle = oracle;
+        this.types = types;
+        this.model = model;
+        this.escape = escape;
+        this.constructor = constructor;
+        this.config = config;
+    }
+    
+    public void apply(Set<PA2.FieldLoad> in, Unit unit, Set<PA2.FieldLoad> out) {
+        Stmt stmt = (Stmt) unit;
+        
+        // Start with incoming available loads
+        out.clear();
+        out.addAll(in);
+        
+        // Writes of other threads become visible: only objects that never
+        // leave the method keep their facts. The objects in the middle of
+        // a path are not tracked, so paths are dropped.
+        if (config.concurrent && isSyncPoint(stmt)) {
+            out.removeIf(load -> !load.prefix.isEmpty() ||
+                    escape.mayEscape(load.base, unit));
+        }
+        
+        // Kill loads that are invalidated
+        if (stmt instanceof AssignStmt) {
+            AssignStmt assign = (AssignStmt) stmt;
+            Value left = assign.getLeftOp();
+            
+            // If we're writing to a field, kill all loads of that field
+            if (left instanceof InstanceFieldRef) {
+                InstanceFieldRef fieldRef = (InstanceFieldRef) left;
+                Value base = fieldRef.getBase();
+                SootField field = fieldRef.getField();
+                Set<String> basePointsTo = pointsTo.getPointsToSet(base, unit);
+                
+                // Kill all loads that may alias with this write; field,
+                // declared types and unification classes are checked
+                // before the points-to sets
+                out.removeIf(load -> {
+                    // The objects along a path are not tracked
+                    if (!load.prefix.isEmpty()) {
+                        return AccessPaths.touches(load, field);
+                    }
+                    if (!load.field.equals(field) ||
+                        !types.mayAlias(load.base, load.field, base, field)) {
+                        return false;
+                    }
+                    if (oracle != null && !oracle.mayAlias(load.base, base)) {
+                        return false;
+                    }
+                    Set<String> loadBasePointsTo = pointsTo.getPointsToSet(load.base, unit);
+                    return !Collections.disjoint(basePointsTo, loadBasePointsTo);
+                });
+                
+                // Store-to-load forwarding: o.f now holds the stored value,
+                // a local or a constant
+                if (config.forwardStores && !(config.concurrent && isVolatile(field))) {
+                    PA2.FieldLoad stored = new PA2.FieldLoad(base, field, assign.getRightOp());
+                    out.remove(stored);
+                    out.add(stored);
+                }
+            }
+            
+            // Paths are derived from targets, so facts on the old value
+            // of a reassigned local must go
+            if (config.accessPaths > 0 && left instanceof Local) {
+                out.removeIf(load -> left.equals(load.base) || left.equals(load.target));
+            }
+            
+            // If we're reading from a field, generate this load
+            Value right = assign.getRightOp();
+            if (right instanceof InstanceFieldRef &&
+                !(config.concurrent && isVolatile(((InstanceFieldRef) right).getField()))) {
+                InstanceFieldRef fieldRef = (InstanceFieldRef) right;
+                PA2.FieldLoad newLoad = new PA2.FieldLoad(
+                    fieldRef.getBase(),
+                    fieldRef.getField(),
+                    left
+                );
+                if (config.accessPaths == 0 || !left.equals(newLoad.base)) {
+                    out.add(newLoad);
+                }
+                
+                // base holds some path p, so left now holds p.field
+                if (config.accessPaths > 0) {
+                    PA2.FieldLoad via = AccessPaths.pathOf(in, fieldRef.getBase());
+                    PA2.FieldLoad path = via == null ? null
+                            : AccessPaths.extend(via, fieldRef.getField(), left, config.accessPaths);
+                    if (path != null && !left.equals(path.base)) {
+                        out.add(path);
+                    }
+                }
+            }
+        }
+            /* =============================
+        3️⃣ Method call kill
+        ============================= */
+        if (stmt.containsInvokeExpr()) {
+
+            // Calls the model knows kill at most some receiver fields
+            PurityModel.Effect effect = model.lookup(stmt.getInvokeExpr());
+            if (effect != null) {
+                applyModeledCall(effect, stmt, out);
+                return;
+            }
+
+            // The object under construction is not reachable by the callee
+            if (constructor != null) {
+                out.removeIf(load -> !constructor.survives(stmt, load));
+                return;
+            }
+
+            InvokeExpr invoke = stmt.getInvokeExpr();
+
+            Set<Value> receiverObjs = new HashSet<>();
+
+            // receiver
+            if (invoke instanceof InstanceInvokeExpr) {
+                receiverObjs.add(
+                    ((InstanceInvokeExpr) invoke).getBase()
+                );
+            }
+
+            // arguments
+            for (Value arg : invoke.getArgs()) {
+                receiverObjs.add(arg);
+            }
+            // Step 1: convert Value → abstract objects
+            Set<String> receiverHeapObjs = new HashSet<>();
+
+            for (Value v : receiverObjs) {
+                receiverHeapObjs.addAll(
+                    pointsTo.getPointsToSet(v, stmt)
+                );
+            }
+
+       
+            Set<String> reachable = pointsTo.getReachableObjects(receiverHeapObjs);
+            if (config.trace()) {
+                System.out.println("Call stmt: " + stmt);
+                System.out.println("Receiver heap objs: " + receiverHeapObjs);
+                System.out.println("Reachable: " + reachable);
+            }
+
+            out.removeIf(load -> {
+                    if (config.trace()) {
+                        System.out.println("Checking load: " + load);
+                        System.out.println("Load resolves to: " + pointsTo.getPointsToSet(load.base, unit));
+                    }
+                    // The callee may write any field along a path
+                    if (!load.prefix.isEmpty()) {
+                        return true;
+                    }
+                    return out.contains(new PA2.FieldLoad(load.base,load.field,null));
+            });
+
+        }
+    }
+    
+    // Monitor enter/exit, volatile reads and calls that may run a
+    // synchronized method; a virtual call may reach a synchronized override
+    static boolean isSyncPoint(Stmt stmt) {
+        if (stmt instanceof MonitorStmt) {
+            return true;
+        }
+        if (stmt.containsInvokeExpr()) {
+            InvokeExpr invoke = stmt.getInvokeExpr();
+            SootMethod callee = invoke.getMethodRef().tryResolve();
+            if (callee == null || callee.isSynchronized()) {
+                return true;
+            }
+            return (invoke instanceof VirtualInvokeExpr || invoke instanceof InterfaceInvokeExpr) &&
+                   !callee.isFinal() && !callee.getDeclaringClass().isFinal();
+        }
+        if (stmt instanceof AssignStmt && ((AssignStmt) stmt).getRightOp() instanceof FieldRef) {
+            return isVolatile(((FieldRef) ((AssignStmt) stmt).getRightOp()).getField());
+        }
+        return false;
+    }
+    
+    static boolean isVolatile(SootField field) {
+        return Modifier.isVolatile(field.getModifiers());
+    }
+    
+    private void applyModeledCall(PurityModel.Effect effect, Stmt stmt, Set<PA2.FieldLoad> out) {
+        InvokeExpr invoke = stmt.getInvokeExpr();
+        Value receiver = invoke instanceof InstanceInvokeExpr
+                ? ((InstanceInvokeExpr) invoke).getBase() : null;
+        Value result = stmt instanceof AssignStmt
+                ? ((AssignStmt) stmt).getLeftOp() : null;
+        Set<String> receiverPointsTo = receiver == null
+                ? null : pointsTo.getPointsToSet(receiver, stmt);
+        
+        out.removeIf(load -> {
+            // The call result overwrites the base
+            if (load.base.equals(result)) {
+                return true;
+            }
+            if (!load.prefix.isEmpty()) {
+                return AccessPaths.touches(load, effect.writes);
+            }
+            if (!effect.writes.contains(load.field.getName())) {
+                return false;
+            }
+            if (receiver == null || load.base.equals(receiver)) {
+                return true;
+            }
+            // Nothing known about either side: assume they alias
+            Set<String> loadBasePointsTo = pointsTo.getPointsToSet(load.base, stmt);
+            if (receiverPointsTo.isEmpty() || loadBasePointsTo.isEmpty()) {
+                return true;
+            }
+            return !Collections.disjoint(receiverPointsTo, loadBasePointsTo);
+        });
+    }
+}
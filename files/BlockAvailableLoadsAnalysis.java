@@ -0,0 +1,149 @@
+import soot.*;
+import soot.jimple.*;
+import soot.toolkits.graph.*;
+import soot.toolkits.scalar.*;
+
+import java.util.*;
+
+// Available loads analysis iterated over basic blocks.
+//
+// Every unit-level transfer of AvailableLoadsTransfer has the shape
+// out = (in - KILL) + GEN, where KILL only depends on the (base, field) key of
+// a fact. Such steps compose, so each block is summarized once into a single
+// KILL/GEN pair before the fixpoint starts and the fixpoint never visits
+// individual statements. Per-unit facts are rebuilt on demand, and only for
+// units that load a field.
+class BlockAvailableLoadsAnalysis extends ForwardFlowAnalysis<Block, Set<PA2.FieldLoad>>
+        implements AvailableLoadsQuery {
+
+    private AvailableLoadsTransfer transfer;
+
+    private Map<Block, Summary> summaries = new HashMap<>();
+    private Map<Unit, Block> unitToBlock = new HashMap<>();
+
+    // Facts before each field load, filled block by block on first query
+    private Map<Unit, Set<PA2.FieldLoad>> materialized = new HashMap<>();
+
+    public BlockAvailableLoadsAnalysis(BlockGraph graph, AvailableLoadsTransfer transfer) {
+        super(graph);
+        this.transfer = transfer;
+
+        // Every fact the analysis can ever hold is generated by some unit
+        Set<PA2.FieldLoad> universe = new HashSet<>();
+        for (Block block : graph) {
+            for (Unit unit : block) {
+                unitToBlock.put(unit, block);
+                universe.addAll(apply(Collections.emptySet(), unit));
+            }
+        }
+
+        for (Block block : graph) {
+            summaries.put(block, summarize(block, universe));
+        }
+
+        doAnalysis();
+    }
+
+    private Summary summarize(Block block, Set<PA2.FieldLoad> universe) {
+        // Probe facts carry no target, so a key that comes back with a
+        // target was killed and regenerated by the unit.
+        Set<PA2.FieldLoad> probe = new HashSet<>();
+        for (PA2.FieldLoad fl : universe) {
+            probe.add(new PA2.FieldLoad(fl.base, fl.field, null));
+        }
+
+        Summary summary = new Summary();
+
+        for (Unit unit : block) {
+            Map<PA2.FieldLoad, PA2.FieldLoad> survivors = new HashMap<>();
+            for (PA2.FieldLoad fl : apply(probe, unit)) {
+                survivors.put(fl, fl);
+            }
+
+            Set<PA2.FieldLoad> killed = new HashSet<>();
+            for (PA2.FieldLoad key : probe) {
+                PA2.FieldLoad after = survivors.get(key);
+                if (after == null || after.target != null) {
+                    killed.add(key);
+                }
+            }
+
+            // (in - K1 + G1) - K2 + G2 = in - (K1 + K2) + ((G1 - K2) + G2)
+            summary.kill.addAll(killed);
+            summary.gen.removeAll(killed);
+            summary.gen.addAll(apply(Collections.emptySet(), unit));
+        }
+
+        return summary;
+    }
+
+    private Set<PA2.FieldLoad> apply(Set<PA2.FieldLoad> in, Unit unit) {
+        Set<PA2.FieldLoad> out = new HashSet<>();
+        transfer.apply(in, unit, out);
+        return out;
+    }
+
+    @Override
+    protected void flowThrough(Set<PA2.FieldLoad> in, Block block, Set<PA2.FieldLoad> out) {
+        Summary summary = summaries.get(block);
+
+        copy(in, out);
+        out.removeAll(summary.kill);
+        out.addAll(summary.gen);
+    }
+
+    @Override
+    public Set<PA2.FieldLoad> loadsBefore(Unit unit) {
+        Set<PA2.FieldLoad> facts = materialized.get(unit);
+        if (facts != null) {
+            return facts;
+        }
+
+        Block block = unitToBlock.get(unit);
+        if (block == null) {
+            return Collections.emptySet();
+        }
+
+        // Replay the block once and keep the facts in front of its loads
+        Set<PA2.FieldLoad> current = new HashSet<>(getFlowBefore(block));
+        for (Unit u : block) {
+            if (u instanceof AssignStmt
+                    && ((AssignStmt) u).getRightOp() instanceof InstanceFieldRef) {
+                materialized.put(u, new HashSet<>(current));
+            }
+            current = apply(current, u);
+        }
+
+        return materialized.getOrDefault(unit, Collections.emptySet());
+    }
+
+    @Override
+    protected Set<PA2.FieldLoad> newInitialFlow() {
+        return new HashSet<>();
+    }
+
+    @Override
+    protected Set<PA2.FieldLoad> entryInitialFlow() {
+        return new HashSet<>();
+    }
+
+    @Override
+    protected void merge(Set<PA2.FieldLoad> in1, Set<PA2.FieldLoad> in2, Set<PA2.FieldLoad> out) {
+        out.clear();
+        // Intersection: only loads available on all paths
+        out.addAll(in1);
+        out.retainAll(in2);
+    }
+
+    @Override
+    protected void copy(Set<PA2.FieldLoad> source, Set<PA2.FieldLoad> dest) {
+        dest.clear();
+        dest.addAll(source);
+    }
+
+    // Composed effect of all units in one block
+    static class Summary {
+        Set<PA2.FieldLoad> kill = new HashSet<>();
+        Set<PA2.FieldLoad> gen = new HashSet<>();
+    }
+}
@@ -0,0 +1,80 @@
+import soot.*;
+
+import java.util.*;
+
+// Memoizes the queries of another backend.
+//
+// The analysis asks for the same (value, unit) pairs over and over: once per
+// fixpoint iteration in the transfer function and once per available load in
+// the redundancy lookup. Answers never change once a backend is built, so
+// they are computed once per method.
+class CachingPointsToBackend implements PointsToBackend {
+
+    private final PointsToBackend delegate;
+
+    private final Map<Unit, Map<Value, Set<String>>> locals = new HashMap<>();
+    private final Map<Unit, Map<List<Object>, Set<String>>> fields = new HashMap<>();
+    private final Map<Set<String>, Set<String>> reachable = new HashMap<>();
+
+    private int queries = 0;
+    private int hits = 0;
+
+    CachingPointsToBackend(PointsToBackend delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Set<String> getPointsToSet(Value var, Unit unit) {
+        Map<Value, Set<String>> cache = locals.computeIfAbsent(unit, k -> new HashMap<>());
+        queries++;
+        Set<String> result = cache.get(var);
+        if (result != null) {
+            hits++;
+            return result;
+        }
+        result = delegate.getPointsToSet(var, unit);
+        cache.put(var, result);
+        return result;
+    }
+
+    @Override
+    public Set<String> getFieldPointsToSet(Value base, SootField field, Unit unit) {
+        Map<List<Object>, Set<String>> cache = fields.computeIfAbsent(unit, k -> new HashMap<>());
+        List<Object> key = Arrays.asList(base, field);
+        queries++;
+        Set<String> result = cache.get(key);
+        if (result != null) {
+            hits++;
+            return result;
+        }
+        result = delegate.getFieldPointsToSet(base, field, unit);
+        cache.put(key, result);
+        return result;
+    }
+
+    @Override
+    public Set<String> getReachableObjects(Set<String> roots) {
+        queries++;
+        Set<String> result = reachable.get(roots);
+        if (result != null) {
+            hits++;
+            return result;
+        }
+        result = delegate.getReachableObjects(roots);
+        reachable.put(new HashSet<>(roots), result);
+        return result;
+    }
+
+    @Override
+    public boolean identifiesValue(String obj) {
+        return delegate.identifiesValue(obj);
+    }
+
+    int getQueries() {
+        return queries;
+    }
+
+    int getHits() {
+        return hits;
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import java.util.zip.CRC32;
+
+// Classes to analyze again since the last run (--changed-only).
+//
+// The state file lists "class<TAB>size:crc32" for every class file of the
+// analyzed folder. A class is changed when it is new or its entry differs;
+// without a state file every class is. The state is only replaced by
+// save() after a complete run, so an interrupted build analyzes the same
+// classes again.
+//
+// The results of a class also depend on the classes it uses: constructor
+// bodies (EscapeAnalysis), the hierarchy (TypeAliasFilter, PurityModel).
+// So a class is affected when it is changed or refers, directly or through
+// other classes of the folder, to a changed or removed class. References
+// are the class entries and the types in descriptors of the constant
+// pool. Classes outside the folder (--classpath) are not tracked.
+class ChangedClasses {
+
+    private final Path stateFile;
+    private final Map<String, String> current = new TreeMap<>();
+    private final Set<String> changed = new HashSet<>();
+    private final Set<String> affected = new HashSet<>();
+
+    ChangedClasses(Path classDir, Path stateFile) throws IOException {
+        this.stateFile = stateFile;
+
+        Map<String, String> previous = new HashMap<>();
+        if (Files.exists(stateFile)) {
+            for (String line : Files.readAllLines(stateFile, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) previous.put(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+
+        // Class -> classes of the folder referring to it
+        Map<String, Set<String>> users = new HashMap<>();
+
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(classDir)) {
+            classFiles = files.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList());
+        }
+        for (Path file : classFiles) {
+            String name = classDir.relativize(file).toString();
+            name = name.substring(0, name.length() - ".class".length()).replace(File.separatorChar, '.');
+
+            byte[] bytes = Files.readAllBytes(file);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            String stamp = bytes.length + ":" + Long.toHexString(crc.getValue());
+
+            current.put(name, stamp);
+            if (!stamp.equals(previous.get(name))) changed.add(name);
+
+            for (String used : references(bytes, file)) {
+                if (!used.equals(name)) {
+                    users.computeIfAbsent(used, k -> new HashSet<>()).add(name);
+                }
+            }
+        }
+
+        Deque<String> work = new ArrayDeque<>(changed);
+        for (String name : previous.keySet()) {
+            if (!current.containsKey(name)) work.add(name);
+        }
+        while (!work.isEmpty()) {
+            for (String user : users.getOrDefault(work.poll(), Collections.emptySet())) {
+                if (affected.add(user)) work.add(user);
+            }
+        }
+        affected.addAll(changed);
+    }
+
+    boolean isAffected(String className) {
+        return affected.contains(className);
+    }
+
+    boolean isEmpty() {
+        return affected.isEmpty();
+    }
+
+    int size() {
+        return affected.size();
+    }
+
+    int changed() {
+        return changed.size();
+    }
+
+    // Classes named in the constant pool of a class file
+    private static Set<String> references(byte[] bytes, Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException(file + " is not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        int count = in.readUnsignedShort();
+
+        String[] utf8 = new String[count];
+        List<Integer> classNames = new ArrayList<>();
+        List<Integer> descriptors = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:  // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7:  // Class
+                    classNames.add(in.readUnsignedShort());
+                    break;
+                case 16: // MethodType
+                    descriptors.add(in.readUnsignedShort());
+                    break;
+                case 12: // NameAndType
+                    in.readUnsignedShort();
+                    descriptors.add(in.readUnsignedShort());
+                    break;
+                case 8: case 19: case 20:
+                    in.skipBytes(2);
+                    break;
+                case 15:
+                    in.skipBytes(3);
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 17: case 18:
+                    in.skipBytes(4);
+                    break;
+                case 5: case 6:
+                    // Takes two entries
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException(file + ": unknown constant pool tag " + tag);
+            }
+        }
+
+        Set<String> names = new HashSet<>();
+        for (int index : classNames) {
+            String name = utf8[index];
+            if (name.startsWith("[")) {
+                addTypes(name, names);
+            } else {
+                names.add(name.replace('/', '.'));
+            }
+        }
+        for (int index : descriptors) {
+            addTypes(utf8[index], names);
+        }
+        return names;
+    }
+
+    // Object types of a field or method descriptor
+    private static void addTypes(String descriptor, Set<String> names) {
+        int start = descriptor.indexOf('L');
+        while (start >= 0) {
+            int end = descriptor.indexOf(';', start);
+            if (end < 0) return;
+            names.add(descriptor.substring(start + 1, end).replace('/', '.'));
+            start = descriptor.indexOf('L', end);
+        }
+    }
+
+    void save() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, String> e : current.entrySet()) {
+            lines.add(e.getKey() + "\t" + e.getValue());
+        }
+        Path parent = stateFile.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.write(stateFile, lines, StandardCharsets.UTF_8);
+    }
+}
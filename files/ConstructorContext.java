@@ -0,0 +1,111 @@
+import soot.*;
+import soot.jimple.*;
+import soot.toolkits.graph.*;
+
+import java.util.*;
+
+// Initialization state of `this` inside a constructor (--constructors).
+//
+// The object under construction is fresh: until `this` is passed to a call,
+// stored somewhere or copied to another local, no other code holds a
+// reference to it, so a call that does not receive `this` cannot write its
+// fields. The super(...) call does receive `this`, but it is only a limited
+// kill point: it may write the fields of the superclasses, not the ones
+// declared by the class being constructed (overridable methods called from
+// a superclass constructor are assumed not to write them). A trivial
+// super() that only chains up to Object.<init> does not publish `this`.
+class ConstructorContext {
+
+    private final Local thisLocal;
+    private final SootClass declaringClass;
+
+    // Units that `this` may have escaped before
+    private final Set<Unit> escapedBefore = new HashSet<>();
+
+    private ConstructorContext(Body body, UnitGraph graph) {
+        this.thisLocal = body.getThisLocal();
+        this.declaringClass = body.getMethod().getDeclaringClass();
+
+        // Everything reachable from a unit publishing `this` comes after
+        // the escape
+        Deque<Unit> worklist = new ArrayDeque<>();
+        for (Unit unit : body.getUnits()) {
+            if (publishesThis((Stmt) unit)) {
+                worklist.addAll(graph.getSuccsOf(unit));
+            }
+        }
+        while (!worklist.isEmpty()) {
+            Unit unit = worklist.pop();
+            if (escapedBefore.add(unit)) {
+                worklist.addAll(graph.getSuccsOf(unit));
+            }
+        }
+    }
+
+    // Context of an instance constructor, or null for any other method
+    static ConstructorContext of(Body body, UnitGraph graph) {
+        return body.getMethod().isConstructor() ? new ConstructorContext(body, graph) : null;
+    }
+
+    static boolean isInitializer(SootMethod method) {
+        return method.isConstructor() || method.isStaticInitializer();
+    }
+
+    // Does the fact survive a call the purity model knows nothing about?
+    boolean survives(Stmt call, PA2.FieldLoad load) {
+        if (escapedBefore.contains(call) ||
+            !thisLocal.equals(load.base) || !load.prefix.isEmpty()) {
+            return false;
+        }
+
+        InvokeExpr invoke = call.getInvokeExpr();
+        if (isInitOfThis(invoke)) {
+            // super(...) only writes inherited fields; this(...) writes all
+            SootClass callee = invoke.getMethodRef().getDeclaringClass();
+            return !callee.equals(declaringClass) &&
+                   load.field.getDeclaringClass().equals(declaringClass);
+        }
+
+        return !usesThis(invoke);
+    }
+
+    private boolean publishesThis(Stmt stmt) {
+        if (stmt instanceof IdentityStmt || stmt instanceof IfStmt) return false;
+
+        if (stmt.containsInvokeExpr()) {
+            InvokeExpr invoke = stmt.getInvokeExpr();
+            if (isInitOfThis(invoke) && !invoke.getArgs().contains(thisLocal) &&
+                EscapeAnalysis.isTrivialConstructorCall(invoke)) {
+                return false;
+            }
+            if (usesThis(invoke)) return true;
+        }
+
+        if (stmt instanceof AssignStmt) {
+            // this.f = x and x = this.f keep `this` where it is
+            Value right = ((AssignStmt) stmt).getRightOp();
+            return right.equals(thisLocal) ||
+                   (right instanceof CastExpr && ((CastExpr) right).getOp().equals(thisLocal));
+        }
+
+        // return, throw, monitors
+        for (ValueBox box : stmt.getUseBoxes()) {
+            if (box.getValue().equals(thisLocal)) return true;
+        }
+        return false;
+    }
+
+    private boolean isInitOfThis(InvokeExpr invoke) {
+        return invoke instanceof SpecialInvokeExpr &&
+               ((SpecialInvokeExpr) invoke).getBase().equals(thisLocal) &&
+               invoke.getMethodRef().getName().equals("<init>");
+    }
+
+    private boolean usesThis(InvokeExpr invoke) {
+        if (invoke instanceof InstanceInvokeExpr &&
+            ((InstanceInvokeExpr) invoke).getBase().equals(thisLocal)) {
+            return true;
+        }
+        return invoke.getArgs().contains(thisLocal);
+    }
+}
@@ -0,0 +1,185 @@
+import soot.*;
+import soot.jimple.*;
+import soot.jimple.toolkits.annotation.nullcheck.NullnessAnalysis;
+import soot.toolkits.graph.*;
+import soot.toolkits.scalar.*;
+
+import java.util.*;
+
+// Backward analysis of field stores that are overwritten before any
+// possible read.
+//
+// A fact (o, f) after a unit says: on every path from here, o.f is stored
+// again through the same local o before anything may read it, or the method
+// ends while the object in o has not escaped. A store o.f = x with (o, f)
+// in the facts after it is dead.
+//
+// Reads of f through a base that may alias o, calls that may read escaping
+// objects, reassigning o, and exceptions that leave the method with an
+// escaping object all end the fact. Facts are intersected at merges; the
+// graph includes exceptional edges so handlers are accounted for.
+class DeadStoreAnalysis extends BackwardFlowAnalysis<Unit, Set<PA2.FieldLoad>> {
+
+    private final PointsToBackend pointsTo;
+    private final EscapeAnalysis escape;
+    private final PurityModel model;
+    private final NullnessAnalysis nullness;
+
+    // Every (base, field) stored in the method
+    private final Set<PA2.FieldLoad> universe = new HashSet<>();
+
+    // Stores of objects that never escape: dead if nothing reads them
+    private final Set<PA2.FieldLoad> atExit = new HashSet<>();
+
+    DeadStoreAnalysis(ExceptionalUnitGraph graph, PointsToBackend pointsTo,
+                      EscapeAnalysis escape, PurityModel model) {
+        super(graph);
+        this.pointsTo = pointsTo;
+        this.escape = escape;
+        this.model = model;
+        this.nullness = new NullnessAnalysis(graph);
+
+        for (Unit unit : graph) {
+            PA2.FieldLoad key = storeKey(unit);
+            if (key == null) continue;
+            universe.add(key);
+            if (!escape.mayEscape(key.base, unit)) {
+                atExit.add(key);
+            }
+        }
+
+        // A local may hold an escaping object elsewhere in the method
+        for (Unit unit : graph) {
+            PA2.FieldLoad key = storeKey(unit);
+            if (key != null && escape.mayEscape(key.base, unit)) {
+                atExit.removeIf(k -> k.base.equals(key.base));
+            }
+        }
+
+        doAnalysis();
+    }
+
+    // Stores whose value is never read; safe to delete, as the base is
+    // known to be non-null and deleting cannot drop an exception.
+    List<Unit> getDeadStores() {
+        List<Unit> dead = new ArrayList<>();
+        for (Unit unit : graph) {
+            PA2.FieldLoad key = storeKey(unit);
+            if (key == null) continue;
+            // For backward analyses, the flow "before" a unit is the one
+            // following it in program order
+            if (getFlowBefore(unit).contains(key) &&
+                nullness.isAlwaysNonNullBefore(unit, (Immediate) key.base)) {
+                dead.add(unit);
+            }
+        }
+        return dead;
+    }
+
+    private static PA2.FieldLoad storeKey(Unit unit) {
+        if (!(unit instanceof AssignStmt)) return null;
+        Value left = ((AssignStmt) unit).getLeftOp();
+        if (!(left instanceof InstanceFieldRef)) return null;
+        InstanceFieldRef ref = (InstanceFieldRef) left;
+        return new PA2.FieldLoad(ref.getBase(), ref.getField(), null);
+    }
+
+    @Override
+    protected void flowThrough(Set<PA2.FieldLoad> after, Unit unit, Set<PA2.FieldLoad> before) {
+        Stmt stmt = (Stmt) unit;
+        copy(after, before);
+
+        // An exception leaving the method exposes escaping objects
+        if (canThrow(stmt)) {
+            before.removeIf(k -> escape.mayEscape(k.base, unit));
+        }
+
+        // The fact was about the object the local held afterwards
+        for (ValueBox box : unit.getDefBoxes()) {
+            Value def = box.getValue();
+            if (def instanceof Local) {
+                before.removeIf(k -> k.base.equals(def));
+            }
+        }
+
+        if (stmt.containsInvokeExpr()) {
+            PurityModel.Effect effect = model.lookup(stmt.getInvokeExpr());
+            if (effect == null || effect.kind != PurityModel.Kind.PURE) {
+                before.removeIf(k -> escape.mayEscape(k.base, unit));
+            }
+        }
+
+        // Reads of a field through a possibly aliasing base
+        for (ValueBox box : unit.getUseBoxes()) {
+            if (!(box.getValue() instanceof InstanceFieldRef)) continue;
+            InstanceFieldRef read = (InstanceFieldRef) box.getValue();
+            before.removeIf(k -> k.field.equals(read.getField()) &&
+                                 mayAlias(k.base, read.getBase(), unit));
+        }
+
+        PA2.FieldLoad store = storeKey(unit);
+        if (store != null) {
+            before.add(store);
+        }
+    }
+
+    private boolean mayAlias(Value a, Value b, Unit unit) {
+        if (a.equals(b)) return true;
+        Set<String> pa = pointsTo.getPointsToSet(a, unit);
+        Set<String> pb = pointsTo.getPointsToSet(b, unit);
+        if (pa.isEmpty() || pb.isEmpty()) return true;
+        return !Collections.disjoint(pa, pb);
+    }
+
+    // Units that may raise an exception; asynchronous VM errors are ignored
+    private boolean canThrow(Stmt stmt) {
+        if (stmt instanceof IdentityStmt || stmt instanceof GotoStmt ||
+            stmt instanceof NopStmt || stmt instanceof IfStmt ||
+            stmt instanceof ReturnStmt || stmt instanceof ReturnVoidStmt) {
+            return false;
+        }
+        if (stmt.containsInvokeExpr() || stmt.containsArrayRef() ||
+            stmt instanceof ThrowStmt || stmt instanceof MonitorStmt) {
+            return true;
+        }
+        if (!(stmt instanceof AssignStmt)) return true;
+
+        Value left = ((AssignStmt) stmt).getLeftOp();
+        Value right = ((AssignStmt) stmt).getRightOp();
+        if (left instanceof StaticFieldRef || right instanceof StaticFieldRef) return true;
+
+        InstanceFieldRef ref = left instanceof InstanceFieldRef ? (InstanceFieldRef) left
+                : right instanceof InstanceFieldRef ? (InstanceFieldRef) right : null;
+        if (ref != null) {
+            return !nullness.isAlwaysNonNullBefore(stmt, (Immediate) ref.getBase());
+        }
+
+        if (right instanceof DivExpr || right instanceof RemExpr) return true;
+        if (right instanceof CastExpr) return !(((CastExpr) right).getCastType() instanceof PrimType);
+        return false;
+    }
+
+    @Override
+    protected Set<PA2.FieldLoad> newInitialFlow() {
+        return new HashSet<>(universe);
+    }
+
+    @Override
+    protected Set<PA2.FieldLoad> entryInitialFlow() {
+        return new HashSet<>(atExit);
+    }
+
+    @Override
+    protected void merge(Set<PA2.FieldLoad> in1, Set<PA2.FieldLoad> in2, Set<PA2.FieldLoad> out) {
+        out.clear();
+        // Must be overwritten on every path
+        out.addAll(in1);
+        out.retainAll(in2);
+    }
+
+    @Override
+    protected void copy(Set<PA2.FieldLoad> source, Set<PA2.FieldLoad> dest) {
+        dest.clear();
+        dest.addAll(source);
+    }
+}
@@ -0,0 +1,124 @@
+import soot.*;
+import soot.jimple.*;
+
+import java.util.*;
+
+// Intraprocedural escape analysis over the abstract objects of a points-to
+// backend.
+//
+// An object escapes when it may be observed outside the method: it is
+// passed to a call, returned, thrown, stored into a static field or an
+// array, or stored into (or reachable from) another escaping object.
+// Receivers of trivial constructors (only super() up to Object.<init>) and
+// arguments of calls the purity model marks pure or read-only are not
+// captured by the callee and do not escape.
+//
+// Objects that come from outside (the placeholders of this, parameters and
+// static fields) escape by definition. Values without any abstract object
+// (unknown call results, loads beyond the placeholder depth) are treated as
+// escaping.
+class EscapeAnalysis {
+
+    private final PointsToBackend pointsTo;
+    private final Set<String> escaping;
+
+    EscapeAnalysis(Body body, PointsToBackend pointsTo, PurityModel model) {
+        this.pointsTo = pointsTo;
+
+        Set<String> roots = new HashSet<>();
+        for (Unit unit : body.getUnits()) {
+            Stmt stmt = (Stmt) unit;
+
+            if (stmt.containsInvokeExpr()) {
+                InvokeExpr invoke = stmt.getInvokeExpr();
+                PurityModel.Effect effect = model.lookup(invoke);
+                boolean captures = effect == null || effect.kind == PurityModel.Kind.WRITES;
+
+                if (invoke instanceof InstanceInvokeExpr && captures &&
+                    !isTrivialConstructorCall(invoke)) {
+                    roots.addAll(pointsTo.getPointsToSet(((InstanceInvokeExpr) invoke).getBase(), unit));
+                }
+                if (captures) {
+                    for (Value arg : invoke.getArgs()) {
+                        roots.addAll(pointsTo.getPointsToSet(arg, unit));
+                    }
+                }
+            }
+
+            if (stmt instanceof IdentityStmt) {
+                roots.addAll(pointsTo.getPointsToSet(((IdentityStmt) stmt).getLeftOp(), unit));
+            } else if (stmt instanceof AssignStmt &&
+                       ((AssignStmt) stmt).getRightOp() instanceof StaticFieldRef) {
+                roots.addAll(pointsTo.getPointsToSet(((AssignStmt) stmt).getLeftOp(), unit));
+            }
+
+            if (stmt instanceof ReturnStmt) {
+                roots.addAll(pointsTo.getPointsToSet(((ReturnStmt) stmt).getOp(), unit));
+            } else if (stmt instanceof ThrowStmt) {
+                roots.addAll(pointsTo.getPointsToSet(((ThrowStmt) stmt).getOp(), unit));
+            } else if (stmt instanceof AssignStmt) {
+                Value left = ((AssignStmt) stmt).getLeftOp();
+                Value right = ((AssignStmt) stmt).getRightOp();
+                if (left instanceof StaticFieldRef || left instanceof ArrayRef) {
+                    roots.addAll(pointsTo.getPointsToSet(right, unit));
+                } else if (left instanceof InstanceFieldRef &&
+                           pointsTo.getPointsToSet(((InstanceFieldRef) left).getBase(), unit).isEmpty()) {
+                    // Stored into an object we know nothing about
+                    roots.addAll(pointsTo.getPointsToSet(right, unit));
+                }
+            }
+        }
+
+        // Whatever an escaping object points to escapes as well
+        this.escaping = pointsTo.getReachableObjects(roots);
+    }
+
+    boolean escapes(String obj) {
+        return escaping.contains(obj);
+    }
+
+    // May the object held by v at unit be observed outside the method?
+    boolean mayEscape(Value v, Unit unit) {
+        Set<String> objs = pointsTo.getPointsToSet(v, unit);
+        if (objs.isEmpty()) return true;
+        for (String obj : objs) {
+            if (escaping.contains(obj)) return true;
+        }
+        return false;
+    }
+
+    // new T() followed by T.<init>() that only chains up to Object.<init>
+    static boolean isTrivialConstructorCall(InvokeExpr invoke) {
+        if (!(invoke instanceof SpecialInvokeExpr)) return false;
+        SootMethod ctor = invoke.getMethodRef().tryResolve();
+        return ctor != null && isTrivialConstructor(ctor, 0);
+    }
+
+    private static boolean isTrivialConstructor(SootMethod ctor, int depth) {
+        if (!ctor.isConstructor()) return false;
+        if (ctor.getDeclaringClass().getName().equals("java.lang.Object")) return true;
+        if (depth > 8 || !ctor.isConcrete() || !ctor.getParameterTypes().isEmpty()) return false;
+
+        Body body;
+        try {
+            body = ctor.retrieveActiveBody();
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        for (Unit u : body.getUnits()) {
+            if (u instanceof IdentityStmt || u instanceof ReturnVoidStmt) continue;
+            if (u instanceof InvokeStmt) {
+                InvokeExpr invoke = ((InvokeStmt) u).getInvokeExpr();
+                SootMethod callee = invoke.getMethodRef().tryResolve();
+                if (invoke instanceof SpecialInvokeExpr &&
+                    ((SpecialInvokeExpr) invoke).getBase() == body.getThisLocal() &&
+                    callee != null && isTrivialConstructor(callee, depth + 1)) {
+                    continue;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,103 @@
+import soot.*;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Execution samples per method (--profile).
+//
+// Read from a JDK Flight Recorder file (*.jfr): every jdk.ExecutionSample
+// event counts for the method in its top frame, which is where a redundant
+// load would be executed. Or read from a CSV exported from such a
+// recording, one method per line:
+//
+//     # method,samples
+//     com.example.Order.total()D,1200
+//     com.example.Order.lines,300
+//
+// A method is class.name followed by its JVM descriptor; without the
+// descriptor the count applies to all overloads not listed with theirs.
+class ExecutionProfile {
+
+    // Per overload, class.name plus descriptor
+    private final Map<String, Long> samples = new HashMap<>();
+    // CSV entries given without a descriptor
+    private final Map<String, Long> byName = new HashMap<>();
+
+    static ExecutionProfile read(String path) throws IOException {
+        ExecutionProfile profile = new ExecutionProfile();
+        if (path.endsWith(".jfr")) {
+            profile.readRecording(Paths.get(path));
+        } else {
+            profile.readCsv(Paths.get(path));
+        }
+        return profile;
+    }
+
+    private void readRecording(Path path) throws IOException {
+        try (RecordingFile recording = new RecordingFile(path)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                if (!event.getEventType().getName().equals("jdk.ExecutionSample")) continue;
+
+                RecordedStackTrace stack = event.getStackTrace();
+                if (stack == null || stack.getFrames().isEmpty()) continue;
+
+                RecordedFrame top = stack.getFrames().get(0);
+                if (!top.isJavaFrame()) continue;
+
+                RecordedMethod m = top.getMethod();
+                add(m.getType().getName() + "." + m.getName() + m.getDescriptor(), 1);
+            }
+        }
+    }
+
+    private void readCsv(Path path) throws IOException {
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int comma = line.lastIndexOf(',');
+            try {
+                add(line.substring(0, comma).trim(), Long.parseLong(line.substring(comma + 1).trim()));
+            } catch (RuntimeException e) {
+                throw new IOException(path + ":" + lineNumber + ": expected method,samples");
+            }
+        }
+    }
+
+    private void add(String method, long count) {
+        (method.indexOf('(') >= 0 ? samples : byName).merge(method, count, Long::sum);
+    }
+
+    // The overload's own count; a name without descriptor only stands in
+    // for overloads the profile does not list, never a sampled sibling
+    long samples(SootMethod method) {
+        String name = method.getDeclaringClass().getName() + "." + method.getName();
+        Long exact = samples.get(name + descriptor(method));
+        if (exact != null) return exact;
+        return byName.getOrDefault(name, 0L);
+    }
+
+    long totalSamples() {
+        long total = 0;
+        for (long count : samples.values()) total += count;
+        for (long count : byName.values()) total += count;
+        return total;
+    }
+
+    // JVM descriptor, e.g. (ILjava/lang/String;)V
+    private static String descriptor(SootMethod method) {
+        String signature = method.getBytecodeSignature();
+        return signature.substring(signature.indexOf('('), signature.length() - 1);
+    }
+}
@@ -0,0 +1,131 @@
+import soot.*;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+// Per-unit facts of one huge method, int-encoded in a memory-mapped file
+// (--spill-threshold).
+//
+// After a fixpoint the analysis writes one record of ints per unit
+// (add ... end), then seal() maps the file read-only and unlinks it, so
+// the space is returned once the mapping is collected. get() copies a
+// unit's record out of the mapping; the OS pages records in as they are
+// queried and can drop them again under memory pressure. The objects a
+// fact refers to are replaced by ids of an Interner, which keeps each
+// distinct object once on the heap where the tables kept one per unit.
+class FactStore {
+
+    // Records never cross a mapped chunk
+    private static final long CHUNK = 1L << 30;
+
+    private final Path file;
+    private DataOutputStream out;
+    private long written = 0;
+
+    // Unit -> {offset, number of ints}
+    private final Map<Unit, long[]> records = new IdentityHashMap<>();
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+    // Record being built
+    private int[] pending = new int[64];
+    private int size = 0;
+
+    FactStore() throws IOException {
+        file = Files.createTempFile("pa2-facts", ".bin");
+        file.toFile().deleteOnExit();
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+
+    void add(int value) {
+        if (size == pending.length) {
+            pending = Arrays.copyOf(pending, size * 2);
+        }
+        pending[size++] = value;
+    }
+
+    // Ends the record of the unit
+    void end(Unit unit) throws IOException {
+        long bytes = 4L * size;
+        if (bytes > CHUNK) {
+            throw new IOException("facts of one unit exceed " + CHUNK + " bytes");
+        }
+        if (written / CHUNK != (written + bytes - 1) / CHUNK) {
+            // Pad to the next chunk
+            while (written % CHUNK != 0) {
+                out.write(0);
+                written++;
+            }
+        }
+        records.put(unit, new long[] { written, size });
+        for (int i = 0; i < size; i++) {
+            out.writeInt(pending[i]);
+        }
+        written += bytes;
+        size = 0;
+    }
+
+    void seal() throws IOException {
+        out.close();
+        out = null;
+        pending = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (long start = 0; start < written; start += CHUNK) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK, written - start)));
+            }
+        }
+        try {
+            Files.delete(file);
+        } catch (IOException e) {
+            // Mapped files cannot be deleted everywhere; deleteOnExit stays
+        }
+    }
+
+    // Record of the unit, or null if none was written
+    int[] get(Unit unit) {
+        long[] record = records.get(unit);
+        if (record == null) return null;
+
+        MappedByteBuffer chunk = chunks.get((int) (record[0] / CHUNK));
+        int position = (int) (record[0] % CHUNK);
+        int[] ints = new int[(int) record[1]];
+        for (int i = 0; i < ints.length; i++) {
+            // Absolute reads, so concurrent queries do not interfere
+            ints[i] = chunk.getInt(position + 4 * i);
+        }
+        return ints;
+    }
+
+    // Dense ids of the objects referenced by spilled facts
+    static final class Interner<T> {
+        private final Map<T, Integer> ids;
+        private final List<T> values = new ArrayList<>();
+
+        // identity: tell apart objects that are equal but not the same
+        Interner(boolean identity) {
+            ids = identity ? new IdentityHashMap<>() : new HashMap<>();
+        }
+
+        int id(T value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        // Id of an interned object, -1 otherwise
+        int find(T value) {
+            Integer id = ids.get(value);
+            return id == null ? -1 : id;
+        }
+
+        T value(int id) {
+            return values.get(id);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import soot.*;
+import soot.jimple.*;
+import soot.jimple.toolkits.annotation.logic.Loop;
+import soot.toolkits.graph.*;
+
+import java.util.*;
+
+// Static estimate of how often each unit runs per call of its method
+// (--rank).
+//
+// Every loop level multiplies the frequency by LOOP_TRIPS (LoopNestTree
+// gives the nesting). Within one iteration of its innermost loop, a unit
+// runs with the probability of the branches leading to it, which are
+// propagated over the graph without back edges in topological order.
+// Branch probabilities follow the Ball-Larus heuristics:
+//   - a successor that runs into a throw is almost never taken, one that
+//     runs into a return is taken less often than its sibling,
+//   - a comparison against null usually finds a non-null reference,
+//   - branches that leave a loop are taken once the loop is done, so both
+//     successors of a loop test keep the full frequency,
+//   - anything else is a coin flip; switches split evenly.
+// Units reached only through exception handlers run rarely.
+class FrequencyEstimator {
+
+    static final double LOOP_TRIPS = 10;
+
+    private static final double THROW_TAKEN = 0.05;
+    private static final double RETURN_TAKEN = 0.28;
+    private static final double NULL_TAKEN = 0.4;
+    private static final double HANDLER = 0.05;
+
+    private final Map<Unit, Double> frequency = new HashMap<>();
+
+    FrequencyEstimator(Body body, UnitGraph graph) {
+        // Loops containing each unit
+        Map<Unit, List<Loop>> loopsOf = new HashMap<>();
+        for (Loop loop : new LoopNestTree(body)) {
+            for (Stmt s : loop.getLoopStatements()) {
+                loopsOf.computeIfAbsent(s, k -> new ArrayList<>()).add(loop);
+            }
+        }
+
+        // Back edges run from inside a loop to its head
+        Map<Unit, List<Unit>> forwardSuccs = new HashMap<>();
+        Map<Unit, Integer> pending = new HashMap<>();
+        for (Unit u : body.getUnits()) {
+            pending.putIfAbsent(u, 0);
+            List<Unit> succs = new ArrayList<>();
+            for (Unit s : graph.getSuccsOf(u)) {
+                if (!isBackEdge(u, s, loopsOf)) {
+                    succs.add(s);
+                    pending.merge(s, 1, Integer::sum);
+                }
+            }
+            forwardSuccs.put(u, succs);
+        }
+
+        // Probability of reaching each unit within one iteration
+        Map<Unit, Double> reach = new HashMap<>();
+        Unit entry = body.getUnits().getFirst();
+        for (Unit head : graph.getHeads()) {
+            reach.put(head, head == entry ? 1.0 : HANDLER);
+        }
+
+        Deque<Unit> ready = new ArrayDeque<>();
+        for (Unit u : body.getUnits()) {
+            if (pending.get(u) == 0) ready.add(u);
+        }
+        Set<Unit> done = new HashSet<>();
+        Iterator<Unit> chain = body.getUnits().iterator();
+        while (done.size() < pending.size()) {
+            Unit u;
+            if (!ready.isEmpty()) {
+                u = ready.poll();
+            } else {
+                // Irreducible flow: continue in chain order
+                u = chain.next();
+            }
+            if (!done.add(u)) continue;
+
+            double p = Math.min(1.0, reach.getOrDefault(u, 0.0));
+            reach.put(u, p);
+
+            List<Unit> succs = forwardSuccs.get(u);
+            for (Unit s : succs) {
+                reach.merge(s, p * probability(u, s, graph, loopsOf), Double::sum);
+                if (pending.merge(s, -1, Integer::sum) == 0) ready.add(s);
+            }
+        }
+
+        for (Unit u : body.getUnits()) {
+            int depth = loopsOf.getOrDefault(u, Collections.emptyList()).size();
+            frequency.put(u, reach.get(u) * Math.pow(LOOP_TRIPS, depth));
+        }
+    }
+
+    // Estimated executions of unit per call of the method
+    double frequency(Unit unit) {
+        return frequency.getOrDefault(unit, 1.0);
+    }
+
+    private static boolean isBackEdge(Unit from, Unit to, Map<Unit, List<Loop>> loopsOf) {
+        for (Loop loop : loopsOf.getOrDefault(from, Collections.emptyList())) {
+            if (loop.getHead() == to) return true;
+        }
+        return false;
+    }
+
+    // Probability that branching unit u continues with s
+    private static double probability(Unit u, Unit s, UnitGraph graph,
+                                      Map<Unit, List<Loop>> loopsOf) {
+        List<Unit> succs = graph.getSuccsOf(u);
+        if (succs.size() < 2) return 1.0;
+        if (!(u instanceof IfStmt)) return 1.0 / succs.size();
+
+        IfStmt branch = (IfStmt) u;
+        Unit other = succs.get(0) == s ? succs.get(1) : succs.get(0);
+
+        // Loop tests: the body runs every iteration, the exit once
+        List<Loop> inner = loopsOf.getOrDefault(u, Collections.emptyList());
+        for (Loop loop : inner) {
+            if (!loop.getLoopStatements().contains(s) ||
+                !loop.getLoopStatements().contains(other)) {
+                return 1.0;
+            }
+        }
+
+        if (endsInThrow(s, graph)) return THROW_TAKEN;
+        if (endsInThrow(other, graph)) return 1 - THROW_TAKEN;
+        if (endsInReturn(s, graph) && !endsInReturn(other, graph)) return RETURN_TAKEN;
+        if (endsInReturn(other, graph) && !endsInReturn(s, graph)) return 1 - RETURN_TAKEN;
+
+        Value cond = branch.getCondition();
+        if (cond instanceof EqExpr || cond instanceof NeExpr) {
+            ConditionExpr cmp = (ConditionExpr) cond;
+            if (cmp.getOp1() instanceof NullConstant || cmp.getOp2() instanceof NullConstant) {
+                boolean taken = s == branch.getTarget();
+                // x == null is taken rarely, x != null usually
+                boolean toNull = (cond instanceof EqExpr) == taken;
+                return toNull ? NULL_TAKEN : 1 - NULL_TAKEN;
+            }
+        }
+        return 0.5;
+    }
+
+    // Straight-line code from u ends in a throw
+    private static boolean endsInThrow(Unit u, UnitGraph graph) {
+        return straightLineEnd(u, graph) instanceof ThrowStmt;
+    }
+
+    private static boolean endsInReturn(Unit u, UnitGraph graph) {
+        Unit end = straightLineEnd(u, graph);
+        return end instanceof ReturnStmt || end instanceof ReturnVoidStmt;
+    }
+
+    private static Unit straightLineEnd(Unit u, UnitGraph graph) {
+        Set<Unit> seen = new HashSet<>();
+        while (seen.add(u) && graph.getSuccsOf(u).size() == 1) {
+            u = graph.getSuccsOf(u).get(0);
+        }
+        return u;
+    }
+}
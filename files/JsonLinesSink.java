@@ -0,0 +1,41 @@
+import soot.*;
+
+import java.io.*;
+import java.util.*;
+
+// --format=jsonl: one JSON object per redundant load, flushed per method.
+//
+//   {"class":"Test","method":"foo","signature":"<Test: void foo()>",
+//    "line":12,"load":"r1.<Node: Node next>","replacement":"$r2",
+//    "initializer":false,"estimate":1.0}
+class JsonLinesSink implements ResultSink {
+
+    private final Writer out;
+
+    JsonLinesSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void method(SootMethod method, boolean initializer,
+                       List<PA2.RedundantLoadInfo> loads) throws IOException {
+        for (PA2.RedundantLoadInfo load : loads) {
+            out.write("{\"class\":" + ResultSink.quote(method.getDeclaringClass().getName())
+                    + ",\"method\":" + ResultSink.quote(method.getName())
+                    + ",\"signature\":" + ResultSink.quote(method.getSignature())
+                    + ",\"line\":" + load.lineNumber
+                    + ",\"load\":" + ResultSink.quote(load.jimpleStmt)
+                    + ",\"replacement\":" + ResultSink.quote(load.replacementVar)
+                    + ",\"initializer\":" + initializer
+                    + ",\"estimate\":" + load.frequency + "}\n");
+        }
+        if (!loads.isEmpty()) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
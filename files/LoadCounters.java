@@ -0,0 +1,99 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runtime side of --instrument: counts executed field loads per site.
+//
+// Instrumented classes call LoadCounters.hit(site) before every instance
+// field load. Each site has its own LongAdder, which stripes contended
+// increments across cells, so the counters stay cheap in multithreaded
+// programs. At JVM exit the counts are joined with the site table written
+// by LoadInstrumenter (load-sites.tsv, or the file named by the
+// loadcounters.sites system property) and printed per line, with the share
+// of executed loads the analysis found redundant.
+//
+// This class is copied next to the instrumented program and must be public.
+public final class LoadCounters {
+
+    private static volatile LongAdder[] counters = new LongAdder[256];
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(LoadCounters::dump, "LoadCounters"));
+    }
+
+    private LoadCounters() {
+    }
+
+    public static void hit(int site) {
+        LongAdder[] c = counters;
+        LongAdder counter = site < c.length ? c[site] : null;
+        if (counter == null) {
+            counter = counter(site);
+        }
+        counter.increment();
+    }
+
+    private static synchronized LongAdder counter(int site) {
+        LongAdder[] c = counters;
+        if (site >= c.length) {
+            c = Arrays.copyOf(c, Math.max(site + 1, c.length * 2));
+        }
+        if (c[site] == null) {
+            c[site] = new LongAdder();
+        }
+        counters = c;
+        return c[site];
+    }
+
+    private static void dump() {
+        LongAdder[] c = counters;
+        String path = System.getProperty("loadcounters.sites", "load-sites.tsv");
+
+        // id, class, method, line, redundant, statement
+        List<String[]> sites = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) sites.add(line.split("\t", 6));
+            }
+        } catch (IOException e) {
+            System.err.println("LoadCounters: no site table " + path + ", printing raw counts");
+            for (int i = 0; i < c.length; i++) {
+                if (c[i] != null) System.err.println("site " + i + ": " + c[i].sum());
+            }
+            return;
+        }
+
+        PrintStream out = System.err;
+        out.println("Field loads executed:");
+        String method = null;
+        long executed = 0;
+        long avoidable = 0;
+        for (String[] site : sites) {
+            int id = Integer.parseInt(site[0]);
+            long count = id < c.length && c[id] != null ? c[id].sum() : 0;
+            boolean redundant = Boolean.parseBoolean(site[4]);
+
+            String current = site[1] + ": " + site[2];
+            if (!current.equals(method)) {
+                summary(out, method, executed, avoidable);
+                out.println(current);
+                method = current;
+                executed = 0;
+                avoidable = 0;
+            }
+            executed += count;
+            if (redundant) avoidable += count;
+            out.println(String.format("  %6s: %12d %s  %s",
+                    site[3], count, redundant ? "avoidable" : "         ", site[5]));
+        }
+        summary(out, method, executed, avoidable);
+    }
+
+    private static void summary(PrintStream out, String method, long executed, long avoidable) {
+        if (method == null) return;
+        out.println(String.format("  avoidable: %d of %d (%.1f%%)",
+                avoidable, executed, executed == 0 ? 0.0 : 100.0 * avoidable / executed));
+    }
+}
@@ -0,0 +1,87 @@
+import soot.*;
+import soot.jimple.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// jtp.loadcounters (--instrument): puts a LoadCounters.hit(site) call in
+// front of every instance field load of the analyzed methods.
+//
+// analyzeMethod marks the loads it reports as redundant; the transform runs
+// afterwards with the other body packs, so the classes written by Soot
+// count both executed and avoidable loads. Site ids are global; the site
+// table (id, class, method, line, redundant, statement) is written next to
+// the classes as load-sites.tsv and read back by LoadCounters at exit.
+class LoadInstrumenter extends BodyTransformer {
+
+    static final String PHASE = "jtp.loadcounters";
+    static final String COUNTERS = "LoadCounters";
+    static final String SITES = "load-sites.tsv";
+
+    private final Set<SootMethod> analyzed = ConcurrentHashMap.newKeySet();
+    private final Set<Unit> redundant = ConcurrentHashMap.newKeySet();
+
+    // Bodies may be transformed concurrently
+    private final AtomicInteger nextSite = new AtomicInteger();
+    private final Map<Integer, String> sites = new ConcurrentHashMap<>();
+
+    void markAnalyzed(SootMethod method) {
+        analyzed.add(method);
+    }
+
+    void markRedundant(Unit load) {
+        redundant.add(load);
+    }
+
+    @Override
+    protected void internalTransform(Body body, String phaseName, Map<String, String> options) {
+        SootMethod method = body.getMethod();
+        if (!analyzed.contains(method)) return;
+
+        SootMethodRef hit = Scene.v().makeMethodRef(Scene.v().getSootClass(COUNTERS), "hit",
+                Collections.singletonList(IntType.v()), VoidType.v(), true);
+
+        for (Unit unit : new ArrayList<>(body.getUnits())) {
+            if (!(unit instanceof AssignStmt) ||
+                !(((AssignStmt) unit).getRightOp() instanceof InstanceFieldRef)) continue;
+
+            int site = nextSite.getAndIncrement();
+            sites.put(site, String.join("\t",
+                    String.valueOf(site),
+                    method.getDeclaringClass().getName(),
+                    method.getName(),
+                    String.valueOf(unit.getJavaSourceStartLineNumber()),
+                    String.valueOf(redundant.contains(unit)),
+                    unit.toString()));
+
+            Unit count = Jimple.v().newInvokeStmt(
+                    Jimple.v().newStaticInvokeExpr(hit, IntConstant.v(site)));
+            count.addAllTagsOf(unit);
+            // Jumps to the load now go through the counter
+            body.getUnits().insertBefore(count, unit);
+        }
+    }
+
+    void writeSites(String dir) throws IOException {
+        File file = new File(dir, SITES);
+        file.getParentFile().mkdirs();
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            // Grouped by method for the per-method totals of LoadCounters
+            List<String[]> rows = new ArrayList<>();
+            for (String site : sites.values()) {
+                rows.add(site.split("\t", 6));
+            }
+            rows.sort(Comparator.<String[], String>comparing(r -> r[1])
+                    .thenComparing(r -> r[2])
+                    .thenComparingInt(r -> Integer.parseInt(r[0])));
+            for (String[] row : rows) {
+                out.println(String.join("\t", row));
+            }
+        }
+        System.out.println("[Instrumentation] " + sites.size() + " load site(s), table in " + file);
+    }
+}
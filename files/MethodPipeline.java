@@ -0,0 +1,141 @@
+import soot.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+// Body retrieval, analysis and output of the selected methods.
+//
+// Sequentially (threads = 0) each method goes through the three steps
+// before the next one starts. With --pipeline they overlap: one thread
+// Jimplifies bodies in report order, a pool analyzes them and the calling
+// thread emits the results, still in report order. The queue between
+// retrieval and output holds at most `depth` methods, so no more bodies
+// than that (plus one per stage) are alive at any time, provided each body
+// is released once analyzed. That is only done when no option needs the
+// bodies again for output; options that rewrite bodies are not allowed
+// with --pipeline at all, as other analysis threads read bodies too.
+class MethodPipeline {
+
+    // One method on its way through the stages
+    static final class Task {
+        final SootMethod method;
+        final boolean initializer;
+        // Profile samples, 0 without --profile
+        final long samples;
+        List<PA2.RedundantLoadInfo> loads;
+
+        Task(SootMethod method, boolean initializer, long samples) {
+            this.method = method;
+            this.initializer = initializer;
+            this.samples = samples;
+        }
+    }
+
+    interface Emitter {
+        // false stops the pipeline
+        boolean emit(Task task);
+    }
+
+    // Marks the end of the retrieved tasks
+    private static final Future<Task> DONE = CompletableFuture.completedFuture(null);
+
+    private final int threads;
+    private final int depth;
+    private final boolean releaseBodies;
+    private final Function<SootMethod, List<PA2.RedundantLoadInfo>> analyzer;
+
+    MethodPipeline(int threads, int depth, boolean releaseBodies,
+                   Function<SootMethod, List<PA2.RedundantLoadInfo>> analyzer) {
+        this.threads = threads;
+        this.depth = depth;
+        this.releaseBodies = releaseBodies;
+        this.analyzer = analyzer;
+    }
+
+    // false if the emitter stopped early
+    boolean run(List<Task> tasks, Emitter emitter) {
+        if (threads == 0) {
+            for (Task task : tasks) {
+                if (!retrieve(task)) continue;
+                analyze(task);
+                if (!emitter.emit(task)) return false;
+            }
+            return true;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        BlockingQueue<Future<Task>> queue = new ArrayBlockingQueue<>(depth);
+        AtomicBoolean stopped = new AtomicBoolean();
+
+        Thread retriever = new Thread(() -> {
+            try {
+                for (Task task : tasks) {
+                    if (stopped.get()) return;
+                    queue.put(retrieve(task)
+                            ? pool.submit(() -> analyze(task), task)
+                            : CompletableFuture.completedFuture(null));
+                }
+                queue.put(DONE);
+            } catch (InterruptedException e) {
+                // stopped by the emitter
+            } catch (RuntimeException | Error e) {
+                CompletableFuture<Task> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                try {
+                    queue.put(failed);
+                } catch (InterruptedException stop) {
+                    // the emitter is gone already
+                }
+            }
+        }, "pa2-bodies");
+        retriever.start();
+
+        try {
+            while (true) {
+                Future<Task> next = queue.take();
+                if (next == DONE) return true;
+                Task task = next.get();
+                if (task != null && !emitter.emit(task)) return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            // Fail as the sequential loop would
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            stopped.set(true);
+            retriever.interrupt();
+            pool.shutdownNow();
+            try {
+                retriever.join();
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static boolean retrieve(Task task) {
+        try {
+            return task.method.retrieveActiveBody() != null;
+        } catch (RuntimeException e) {
+            // If retrieval fails, skip this method
+            System.err.println("Warning: Could not retrieve body for " + task.method.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void analyze(Task task) {
+        task.loads = analyzer.apply(task.method);
+        if (releaseBodies) {
+            // The per-unit analysis state went with analyzer's frame
+            task.method.releaseActiveBody();
+        }
+    }
+}
@@ -0,0 +1,363 @@
+import soot.*;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// --modules=FILE: analyze many class directories at once. Soot state is
+// global, so each module runs in a worker JVM ("PA2 --worker ..."), never
+// two at a time in one JVM. Workers are reused for up to
+// MODULES_PER_WORKER modules; PA2.run resets Soot before each of them.
+//
+// Protocol, one line each way per module:
+//   coordinator -> worker   module \t results file
+//   worker -> coordinator   OK | FAILED
+// after the worker has announced itself with READY. Everything else the
+// analysis prints goes to the worker's stderr, which is passed through.
+//
+// A worker that dies or exceeds --module-timeout is killed and the module
+// retried once on a fresh worker. The per-module results are merged in
+// the order of the modules file, whichever worker finished first.
+class ModuleCoordinator {
+
+    static final String READY = "READY";
+    static final String OK = "OK";
+    static final String FAILED = "FAILED";
+
+    // Bounds what leaks across G.reset() in one worker
+    static final int MODULES_PER_WORKER = 50;
+
+    // Attempts of a module whose worker crashed or timed out
+    static final int ATTEMPTS = 2;
+
+    // Options the coordinator handles itself
+    private static final Set<String> COORDINATOR_OPTIONS = new HashSet<>(Arrays.asList(
+            "--modules", "--workers", "--module-timeout", "--results"));
+
+    // ---- worker side -------------------------------------------------
+
+    static void serve(String[] args) {
+        PrintStream protocol = System.out;
+        System.setOut(System.err);
+
+        // Load Soot's singletons before the first module is sent
+        G.reset();
+        Scene.v();
+        PackManager.v();
+        protocol.println(READY);
+        protocol.flush();
+
+        try {
+            BufferedReader requests = new BufferedReader(
+                    new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = requests.readLine()) != null) {
+                String[] request = line.split("\t", 2);
+                String[] moduleArgs = new String[args.length + 1];
+                moduleArgs[0] = request[0];
+                System.arraycopy(args, 0, moduleArgs, 1, args.length);
+
+                boolean ok = false;
+                AnalysisConfig config = AnalysisConfig.parse(moduleArgs);
+                if (config != null && request.length == 2) {
+                    config.resultsFile = request[1];
+                    // The text report must not mix with the log on stdout
+                    if (config.format.equals(AnalysisConfig.FORMAT_TEXT) && config.sortRunSize == 0) {
+                        config.sortRunSize = AnalysisConfig.DEFAULT_SORT_RUN;
+                    }
+                    try {
+                        ok = PA2.run(config, null);
+                    } catch (RuntimeException e) {
+                        System.err.println("Analysis of " + request[0] + " failed:");
+                        e.printStackTrace();
+                    }
+                }
+                protocol.println(ok ? OK : FAILED);
+                protocol.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Worker lost its coordinator: " + e.getMessage());
+        }
+    }
+
+    // ---- coordinator side --------------------------------------------
+
+    static boolean coordinate(AnalysisConfig config, String[] args) {
+        List<String> modules;
+        try {
+            modules = readModules(config.modulesFile);
+        } catch (IOException e) {
+            System.err.println("Could not read " + config.modulesFile + ": " + e.getMessage());
+            return false;
+        }
+
+        List<String> command = workerCommand(args);
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(config.moduleTimeout);
+
+        Path scratch;
+        try {
+            scratch = Files.createTempDirectory("pa2-modules");
+        } catch (IOException e) {
+            System.err.println("Could not create a scratch directory: " + e.getMessage());
+            return false;
+        }
+
+        // Status per module, null until it has been analyzed
+        String[] status = new String[modules.size()];
+        ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < modules.size(); i++) {
+            pending.add(i);
+        }
+
+        int slots = Math.min(config.workers, Math.max(1, modules.size()));
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < slots; s++) {
+            Thread thread = new Thread(() -> {
+                Worker worker = null;
+                Integer next;
+                while ((next = pending.poll()) != null) {
+                    int index = next;
+                    Path results = scratch.resolve("module-" + index);
+                    String outcome = null;
+                    for (int attempt = 0; attempt < ATTEMPTS && outcome == null; attempt++) {
+                        try {
+                            if (worker == null) {
+                                worker = Worker.start(command, timeoutMillis);
+                            }
+                            outcome = worker.analyze(modules.get(index), results, timeoutMillis);
+                        } catch (IOException e) {
+                            System.err.println("Worker for " + modules.get(index) + " failed: " + e.getMessage());
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                        if (outcome == null && worker != null) {
+                            // Crashed or timed out: this worker is unusable
+                            worker.kill();
+                            worker = null;
+                        }
+                    }
+                    status[index] = outcome == null ? "crashed or timed out" : outcome;
+                    if (worker != null && worker.modules >= MODULES_PER_WORKER) {
+                        worker.stop();
+                        worker = null;
+                    }
+                }
+                if (worker != null) {
+                    worker.stop();
+                }
+            }, "pa2-worker-" + s);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        int failed = 0;
+        try (Writer out = ResultSink.writer(config.resultsFile)) {
+            failed = merge(config.format, modules, status, scratch, out);
+        } catch (IOException e) {
+            System.err.println("Could not write results: " + e.getMessage());
+            return false;
+        } finally {
+            deleteScratch(scratch);
+        }
+        // Not inside JSON Lines or SARIF on stdout
+        PrintStream summary = config.resultsOnStdout() ? System.err : System.out;
+        summary.println("[Modules] " + modules.size() + " module(s) on " + slots
+                + " worker(s), " + failed + " failed");
+        return failed == 0;
+    }
+
+    // Class directories, one per line; blank lines and # comments ignored
+    private static List<String> readModules(String file) throws IOException {
+        List<String> modules = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                modules.add(line);
+            }
+        }
+        return modules;
+    }
+
+    // Same JVM, classpath and JVM flags, analysis options without the
+    // coordinator's own
+    private static List<String> workerCommand(String[] args) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("PA2");
+        command.add("--worker");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg : arg.substring(0, eq);
+            if (arg.startsWith("--") && !COORDINATOR_OPTIONS.contains(name)) {
+                command.add(arg);
+            }
+        }
+        return command;
+    }
+
+    // Module results in list order, each marked with its module; returns
+    // the number of failed modules
+    private static int merge(String format, List<String> modules, String[] status,
+                             Path scratch, Writer out) throws IOException {
+        int failed = 0;
+        boolean sarif = format.equals(AnalysisConfig.FORMAT_SARIF);
+        boolean firstRun = true;
+        if (sarif) {
+            out.write(SarifSink.LOG_HEADER + "\n");
+        }
+        for (int i = 0; i < modules.size(); i++) {
+            String module = modules.get(i);
+            Path results = scratch.resolve("module-" + i);
+            boolean ok = OK.equals(status[i]) && Files.exists(results);
+            if (!ok) {
+                failed++;
+                System.err.println("Module " + module + ": " + (status[i] == null ? "not analyzed" : status[i]));
+            }
+
+            switch (format) {
+                case AnalysisConfig.FORMAT_SARIF:
+                    if (!ok) break;
+                    // The run object of the module's log, tagged with the module
+                    String log = new String(Files.readAllBytes(results), StandardCharsets.UTF_8);
+                    String run = log.substring(SarifSink.LOG_HEADER.length(), log.lastIndexOf(']'));
+                    if (!firstRun) out.write(",\n");
+                    firstRun = false;
+                    out.write("{\"automationDetails\":{\"id\":" + ResultSink.quote(module) + "},"
+                            + run.substring(1));
+                    break;
+                case AnalysisConfig.FORMAT_JSONL:
+                    if (!ok) break;
+                    try (BufferedReader in = Files.newBufferedReader(results, StandardCharsets.UTF_8)) {
+                        String line;
+                        while ((line = in.readLine()) != null) {
+                            out.write("{\"module\":" + ResultSink.quote(module) + "," + line.substring(1) + "\n");
+                        }
+                    }
+                    break;
+                default:
+                    out.write("Module: " + module + (ok ? "" : " (failed)") + "\n");
+                    if (!ok) break;
+                    try (BufferedReader in = Files.newBufferedReader(results, StandardCharsets.UTF_8)) {
+                        String line;
+                        while ((line = in.readLine()) != null) {
+                            out.write(line + "\n");
+                        }
+                    }
+            }
+        }
+        if (sarif) {
+            out.write("\n]}\n");
+        }
+        return failed;
+    }
+
+    private static void deleteScratch(Path scratch) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(scratch)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(scratch);
+        } catch (IOException e) {
+            System.err.println("Could not delete " + scratch + ": " + e.getMessage());
+        }
+    }
+
+    // One worker JVM and the replies read from its stdout
+    private static final class Worker {
+
+        // Reply after the worker's stdout closed
+        private static final String EXITED = "\u0000exited";
+
+        private final Process process;
+        private final Writer requests;
+        private final BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+        int modules = 0;
+
+        private Worker(Process process) {
+            this.process = process;
+            this.requests = new BufferedWriter(
+                    new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            Thread reader = new Thread(() -> {
+                try (BufferedReader in = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        replies.add(line);
+                    }
+                } catch (IOException e) {
+                    // same as exiting
+                }
+                replies.add(EXITED);
+            });
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        static Worker start(List<String> command, long timeoutMillis)
+                throws IOException, InterruptedException {
+            Process process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            Worker worker = new Worker(process);
+            if (!READY.equals(worker.reply(timeoutMillis))) {
+                worker.kill();
+                throw new IOException("worker did not start");
+            }
+            return worker;
+        }
+
+        // OK or FAILED, or null if the worker died or timed out
+        String analyze(String module, Path results, long timeoutMillis)
+                throws IOException, InterruptedException {
+            modules++;
+            requests.write(module + "\t" + results + "\n");
+            requests.flush();
+            String reply = reply(timeoutMillis);
+            if (OK.equals(reply) || FAILED.equals(reply)) {
+                return reply;
+            }
+            System.err.println("Worker " + (reply == null ? "timed out" : "exited") + " on " + module);
+            return null;
+        }
+
+        private String reply(long timeoutMillis) throws InterruptedException {
+            return timeoutMillis > 0
+                    ? replies.poll(timeoutMillis, TimeUnit.MILLISECONDS)
+                    : replies.take();
+        }
+
+        // Closing stdin ends the request loop
+        void stop() {
+            try {
+                requests.close();
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    kill();
+                }
+            } catch (IOException e) {
+                kill();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                kill();
+            }
+        }
+
+        void kill() {
+            process.destroyForcibly();
+        }
+    }
+}
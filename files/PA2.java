@@ -11,40 +11,192 @@ import java.io.*;
 
 public class PA2 {
     
+    private static AnalysisConfig config = new AnalysisConfig();
+    
+    private static TypeAliasFilter typeFilter;
+    
+    // Side effects of library calls: bundled JDK model plus --model files
+    private static PurityModel purityModel;
+    
+    // Removable field stores, keyed like the redundant load results
+    private static Map<String, Map<String, List<DeadStoreInfo>>> deadStoreResults = new TreeMap<>();
+    
+    // Whole-program points-to sets, only with --pta=spark
+    private static SparkPointsToBackend spark;
+    
+    // Execution samples, only with --profile
+    private static ExecutionProfile profile;
+    
+    // Load counting transform, only with --instrument
+    private static LoadInstrumenter instrumenter;
+    
+    // Library packages kept at signature level by --lazy-startup
+    private static final List<String> LAZY_EXCLUDES = Arrays.asList(
+            "java.*", "javax.*", "jdk.*", "sun.*", "com.sun.*");
+    
     public static void main(String[] args) {
-        if (args.length == 0) {
-            System.err.println("Usage: java PA2 <TestcaseFolder>");
+        AnalysisConfig parsed = AnalysisConfig.parse(args);
+        if (parsed == null) {
+            AnalysisConfig.printUsage();
             return;
         }
+        if (parsed.worker) {
+            ModuleCoordinator.serve(args);
+        } else if (parsed.modulesFile != null) {
+            ModuleCoordinator.coordinate(parsed, args);
+        } else {
+            run(parsed, null);
+        }
+    }
+    
+    // One complete analysis; results go to the given sink, or to the one
+    // configured by --format. Also the entry point of RedundantLoadAnalyzer.
+    // Soot is global, so only one run may be active at a time.
+    static boolean run(AnalysisConfig parsed, ResultSink given) {
+        // JSON Lines and SARIF on stdout must not mix with the trace and
+        // summaries; those go to stderr meanwhile (the sink writes to the
+        // process's stdout directly)
+        boolean quiet = given == null && parsed.resultsOnStdout();
+        PrintStream stdout = System.out;
+        if (quiet) {
+            System.setOut(System.err);
+        }
+        try {
+            return analyze(parsed, given);
+        } finally {
+            if (quiet) {
+                System.setOut(stdout);
+            }
+        }
+    }
+    
+    private static boolean analyze(AnalysisConfig parsed, ResultSink given) {
+        config = parsed;
+        deadStoreResults = new TreeMap<>();
+        profile = null;
+        instrumenter = null;
+        spark = null;
         
-        String testFolder = args[0];
+        String testFolder = config.testFolder;
+        String classDir = java.nio.file.Paths.get(testFolder).isAbsolute() ? testFolder : "./" + testFolder;
+        
+        // Skip the whole run when no class file changed
+        ChangedClasses changes = null;
+        if (config.changedOnly != null) {
+            try {
+                changes = new ChangedClasses(java.nio.file.Paths.get(classDir),
+                        java.nio.file.Paths.get(config.changedOnly));
+            } catch (IOException e) {
+                System.err.println("Could not read " + classDir + " or " + config.changedOnly + ": " + e.getMessage());
+                return false;
+            }
+            System.out.println("[Incremental] " + changes.changed() + " changed class(es), "
+                    + changes.size() + " to analyze with their users");
+            if (changes.isEmpty()) {
+                return true;
+            }
+        }
         
         // Configure Soot
+        StartupStats.begin();
         G.reset();
         Options.v().set_prepend_classpath(true);
         Options.v().set_allow_phantom_refs(true);
-        Options.v().set_soot_classpath(".:./soot-4.6.0-jar-with-dependencies.jar:./" + testFolder);
-        Options.v().set_process_dir(Collections.singletonList("./" + testFolder));
-        Options.v().set_whole_program(false);
+        if (config.lazyStartup) {
+            // JDK classes are never analyzed; the type filter and the
+            // purity model only need their signatures
+            Options.v().set_exclude(LAZY_EXCLUDES);
+            Options.v().set_no_bodies_for_excluded(true);
+        }
+        Options.v().set_soot_classpath(".:./soot-4.6.0-jar-with-dependencies.jar:" + classDir
+                + (config.classpath == null ? "" : File.pathSeparator + config.classpath));
+        Options.v().set_process_dir(Collections.singletonList(classDir));
+        // SPARK needs the whole program; all methods act as entry points
+        boolean useSpark = config.pta.equals(AnalysisConfig.PTA_SPARK);
+        Options.v().set_whole_program(useSpark);
+        if (useSpark) {
+            Options.v().setPhaseOption("cg", "all-reachable:true");
+            Options.v().setPhaseOption("cg.spark", "on");
+        }
         Options.v().set_keep_line_number(true);
         Options.v().set_output_format(Options.output_format_none);
         
         // Set source precedence to class files
         Options.v().set_src_prec(Options.src_prec_class);
         
+        // Instrumented classes call the counters, compiled next to PA2
+        if (config.instrument) {
+            Scene.v().addBasicClass(LoadInstrumenter.COUNTERS, SootClass.SIGNATURES);
+            instrumenter = new LoadInstrumenter();
+        }
+        
         // Load necessary classes
         Scene.v().loadNecessaryClasses();
         
+        typeFilter = new TypeAliasFilter(Scene.v().getOrMakeFastHierarchy(), config.typeFilter);
+        
+        purityModel = PurityModel.defaults();
+        for (String path : config.modelFiles) {
+            try {
+                purityModel.addFile(path);
+            } catch (IOException e) {
+                System.err.println("Could not read model " + path + ": " + e.getMessage());
+                return false;
+            }
+        }
+        
+        if (config.profile != null) {
+            try {
+                profile = ExecutionProfile.read(config.profile);
+            } catch (IOException e) {
+                System.err.println("Could not read profile " + config.profile + ": " + e.getMessage());
+                return false;
+            }
+        }
+        
+        if (useSpark) {
+            PackManager.v().getPack("cg").apply();
+            soot.PointsToAnalysis pta = Scene.v().getPointsToAnalysis();
+            if (!(pta instanceof soot.jimple.spark.pag.PAG)) {
+                System.err.println("SPARK did not produce a points-to graph");
+                return false;
+            }
+            spark = new SparkPointsToBackend((soot.jimple.spark.pag.PAG) pta);
+        }
+        
+        if (config.startupStats) {
+            System.out.println(StartupStats.report());
+        }
+        
+        // Streamed results (--format, --external-sort, API), or null
+        ResultSink sink = given;
+        if (sink == null) {
+            try {
+                sink = ResultSink.open(config);
+            } catch (IOException e) {
+                System.err.println("Could not open " + config.resultsFile + ": " + e.getMessage());
+                return false;
+            }
+        }
+        
         // Store results: Map<ClassName, Map<MethodName, List<RedundantLoad>>>
         Map<String, Map<String, List<RedundantLoadInfo>>> results = new TreeMap<>();
+        Map<String, Map<String, List<RedundantLoadInfo>>> constructorResults = new TreeMap<>();
+        int hotMethods = 0;
+        long hotSamples = 0;
         
-        // Analyze each application class
+        // Select the methods of each application class, before any body is built
+        List<MethodPipeline.Task> tasks = new ArrayList<>();
         for (SootClass sootClass : Scene.v().getApplicationClasses()) {
-            String className = sootClass.getName();
+            // SPARK's sets span the whole program: any change affects all
+            if (changes != null && !useSpark && !changes.isAffected(sootClass.getName())) {
+                continue;
+            }
             
             for (SootMethod method : sootClass.getMethods()) {
-                // Skip constructors
-                if (method.getName().equals("<init>") || method.getName().equals("<clinit>")) {
+                // Skip constructors unless asked for
+                boolean initializer = ConstructorContext.isInitializer(method);
+                if (initializer && !config.constructors) {
                     continue;
                 }
                 
@@ -53,37 +205,126 @@ public class PA2 {
                     continue;
                 }
                 
-                // Try to retrieve the body
-                Body body = null;
-                try {
-                    body = method.retrieveActiveBody();
-                } catch (RuntimeException e) {
-                    // If retrieval fails, skip this method
-                    System.err.println("Warning: Could not retrieve body for " + method.getName() + ": " + e.getMessage());
-                    continue;
+                // Skip cold methods
+                long samples = profile == null ? 0 : profile.samples(method);
+                if (profile != null) {
+                    if (samples < config.hotThreshold || samples == 0) {
+                        continue;
+                    }
+                    hotMethods++;
+                    hotSamples += samples;
                 }
                 
-                if (body == null) {
-                    continue;
+                tasks.add(new MethodPipeline.Task(method, initializer, samples));
+            }
+        }
+        
+        // Retrieve, analyze and emit, overlapped with --pipeline. Bodies are
+        // dropped after analysis unless they are written out at the end.
+        MethodPipeline pipeline = new MethodPipeline(config.pipelineThreads, config.queueDepth,
+                !config.rewritesBodies(), method -> {
+                    List<RedundantLoadInfo> loads = analyzeMethod(method);
+                    if (instrumenter != null) {
+                        instrumenter.markAnalyzed(method);
+                    }
+                    return loads;
+                });
+        ResultSink out = sink;
+        boolean complete = pipeline.run(tasks, task -> {
+            List<RedundantLoadInfo> redundantLoads = task.loads;
+            if (profile != null) {
+                for (RedundantLoadInfo info : redundantLoads) {
+                    info.frequency *= task.samples;
                 }
-                
-                // Perform redundant load analysis
-                List<RedundantLoadInfo> redundantLoads = analyzeMethod(method);
-                
-                if (!redundantLoads.isEmpty()) {
-                    results.putIfAbsent(className, new TreeMap<>());
-                    results.get(className).put(method.getName(), redundantLoads);
+            }
+            
+            if (out != null) {
+                try {
+                    out.method(task.method, task.initializer, redundantLoads);
+                } catch (IOException e) {
+                    System.err.println("Could not write results: " + e.getMessage());
+                    return false;
                 }
+            } else if (!redundantLoads.isEmpty()) {
+                Map<String, Map<String, List<RedundantLoadInfo>>> section =
+                        task.initializer ? constructorResults : results;
+                // Overloads share the name; keep the loads of all of them
+                section.computeIfAbsent(task.method.getDeclaringClass().getName(), k -> new TreeMap<>())
+                        .merge(task.method.getName(), redundantLoads, (a, b) -> {
+                            a.addAll(b);
+                            Collections.sort(a);
+                            return a;
+                        });
             }
+            return true;
+        });
+        if (!complete) {
+            return false;
+        }
+        
+        if (profile != null) {
+            long total = profile.totalSamples();
+            System.out.println("[Profile] " + hotMethods + " hot method(s), "
+                    + (total == 0 ? 0 : 100 * hotSamples / total) + "% of " + total + " samples");
         }
         
         // Print results
-        printResults(results);
+        if (sink != null) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                System.err.println("Could not write results: " + e.getMessage());
+            }
+        } else if (config.rank) {
+            Map<String, Map<String, List<RedundantLoadInfo>>> all = new TreeMap<>(results);
+            constructorResults.forEach((c, methods) ->
+                    all.computeIfAbsent(c, k -> new TreeMap<>()).putAll(methods));
+            printRanked(all);
+        } else {
+            printResults(results);
+        }
+        if (sink == null && !config.rank && !constructorResults.isEmpty()) {
+            System.out.println("Constructors:");
+            printResults(constructorResults);
+        }
+        if (config.deadStores) {
+            printDeadStores(deadStoreResults);
+        }
+        
+        // Instrumented bodies go through the body packs into class files,
+        // other transformed bodies are written as Jimple
+        if (config.instrument) {
+            Options.v().set_output_format(Options.output_format_class);
+            Options.v().set_output_dir(config.outputDir);
+            PackManager.v().getPack("jtp").add(new Transform(LoadInstrumenter.PHASE, instrumenter));
+            PackManager.v().runBodyPacks();
+            PackManager.v().writeOutput();
+            try {
+                instrumenter.writeSites(config.outputDir);
+            } catch (IOException e) {
+                System.err.println("Could not write the site table: " + e.getMessage());
+            }
+        } else if (config.rewritesBodies()) {
+            Options.v().set_output_format(Options.output_format_jimple);
+            Options.v().set_output_dir(config.outputDir);
+            PackManager.v().writeOutput();
+        }
+        
+        // Only a complete run moves the baseline
+        if (changes != null) {
+            try {
+                changes.save();
+            } catch (IOException e) {
+                System.err.println("Could not write " + config.changedOnly + ": " + e.getMessage());
+                return false;
+            }
+        }
+        return true;
     }
     
    private static List<RedundantLoadInfo> analyzeMethod(SootMethod method) {
 
-    boolean DEBUG = true;
+    boolean DEBUG = config.trace();
 
     List<RedundantLoadInfo> redundantLoads = new ArrayList<>();
 
@@ -96,22 +337,59 @@ public class PA2 {
         System.out.println("===========================================\n");
     }
 
-    // Perform points-to analysis
-    PointsToAnalysis pointsTo = new PointsToAnalysis(graph, body);
+    // Alias information: flow-sensitive points-to sets, unification
+    // classes, or both. Huge methods may be forced into fast mode.
+    String aliasMode = config.aliasMode;
+    if (config.fastAbove > 0 && body.getUnits().size() > config.fastAbove) {
+        aliasMode = AnalysisConfig.ALIAS_FAST;
+    }
+
+    // Per-unit tables of huge methods go to memory-mapped files
+    boolean spill = config.spillThreshold > 0 && body.getUnits().size() > config.spillThreshold;
+
+    SteensgaardAliasOracle oracle =
+            aliasMode.equals(AnalysisConfig.ALIAS_PRECISE)
+                    ? null : new SteensgaardAliasOracle(body);
+
+    PointsToBackend backend;
+    if (aliasMode.equals(AnalysisConfig.ALIAS_FAST)) {
+        backend = new UnificationPointsToBackend(oracle);
+        oracle = null;
+    } else if (spark != null) {
+        backend = spark;
+    } else {
+        backend = new PointsToAnalysis(graph, body, spill, config.trace());
+    }
+    CachingPointsToBackend pointsTo = new CachingPointsToBackend(backend);
 
-    // Perform available loads analysis
-    AvailableLoadsAnalysis availableLoads =
-            new AvailableLoadsAnalysis(graph, pointsTo);
+    // Objects that may be seen by callers, other threads or the heap
+    EscapeAnalysis escape =
+            config.concurrent || config.deadStores || config.scalarReplace
+                    ? new EscapeAnalysis(body, pointsTo, purityModel) : null;
+
+    FrequencyEstimator frequencies = config.rank ? new FrequencyEstimator(body, graph) : null;
+
+    // Perform available loads analysis, per unit or per basic block
+    AvailableLoadsTransfer transfer =
+            new AvailableLoadsTransfer(pointsTo, oracle, typeFilter, purityModel, escape,
+                    ConstructorContext.of(body, graph), config);
+    AvailableLoadsQuery availableLoads = config.blockMode
+            ? new BlockAvailableLoadsAnalysis(new BriefBlockGraph(body), transfer)
+            : new AvailableLoadsAnalysis(graph, transfer, spill);
 
     List<Unit> units = new ArrayList<>();
     for (Unit u : body.getUnits()) {
         units.add(u);
     }
 
+    // Field contents of available loads, reused between queries
+    AvailableLoadIndex.Contents contents = new AvailableLoadIndex.Contents(pointsTo, graph);
+
     for (int i = 0; i < units.size(); i++) {
 
         Unit unit = units.get(i);
         Stmt stmt = (Stmt) unit;
+        contents.advance(unit);
 
         if (DEBUG) {
             System.out.println("------------------------------------------------");
@@ -131,16 +409,22 @@ public class PA2 {
                 Value base = fieldRef.getBase();
                 SootField field = fieldRef.getField();
 
+                // Every read of a volatile field must reach memory
+                if (config.concurrent && AvailableLoadsTransfer.isVolatile(field)) {
+                    continue;
+                }
+
                 if (DEBUG) {
                     System.out.println("FIELD LOAD DETECTED: " +
                             base + "." + field.getName());
                 }
 
                 Set<FieldLoad> availableBefore =
-                        availableLoads.getFlowBefore(unit);
+                        availableLoads.loadsBefore(unit);
 
                 
-                Set<String> currentFieldPts = pointsTo.getFieldPointsToSet(base, field, unit);
+                Set<String> currentFieldPts =
+                        pointsTo.getFieldPointsToSet(base, field, unit);
 
                 if (DEBUG) {
                     System.out.println("Available Loads BEFORE:");
@@ -151,69 +435,56 @@ public class PA2 {
                     System.out.println("Current field Points-To: " + currentFieldPts);
                 }
 
-                for (FieldLoad availLoad : availableBefore) {
+                // One lookup per abstract object instead of a points-to
+                // intersection per available load
+                AvailableLoadIndex index =
+                        new AvailableLoadIndex(availableBefore, contents, oracle,
+                                typeFilter, unit, base, field);
+                FieldLoad availLoad =
+                        index.lookup(base, field, currentFieldPts);
+
+                // The same chain loaded through other temporaries
+                if (availLoad == null && config.accessPaths > 0) {
+                    availLoad = AccessPaths.lookup(availableBefore, base, field, config.accessPaths);
+                }
+
+                if (DEBUG) {
+                    System.out.println("Index match: " + availLoad);
+                }
 
-                    Set<String> availFieldPts =
-                                        pointsTo.getFieldPointsToSet(
-                                            availLoad.base,
-                                            availLoad.field,
-                                            unit
-                                        );
+                int lineNumber =
+                        stmt.getJavaSourceStartLineNumber();
 
-                    boolean sameBase =
-                            base.equals(availLoad.base);
-                    boolean sameField = field.getName().equals(availLoad.field.getName());
+                if (availLoad != null && lineNumber > 0) {
 
-                     // Compute intersection
-                    Set<String> intersection = new HashSet<>(currentFieldPts);
-                    intersection.retainAll(availFieldPts);
+                    String fieldRefStr =
+                            base.toString() + ".<" +
+                            field.getDeclaringClass().getName() + ": " +
+                            field.getType() + " " +
+                            field.getName() + ">";
 
-                    boolean mayAlias =
-                            !intersection.isEmpty()
-                            ||
-                            (currentFieldPts.isEmpty()
-                             && availFieldPts.isEmpty()
-                             && sameBase && sameField);
+                    String replacementVar =
+                            availLoad.target.toString();
 
                     if (DEBUG) {
-                        System.out.println("\nComparing with: " + availLoad);
-                        System.out.println("   Avail Base  fields Points-To: "
-                                + availFieldPts);
-                        System.out.println("   sameBase: " + sameBase);
-                        System.out.println("   mayAlias: " + mayAlias);
+                        System.out.println(">>> REDUNDANT LOAD FOUND!");
+                        System.out.println("    Replacing with: "
+                                + replacementVar);
                     }
 
-                    if (mayAlias) {
-                        
-                        int lineNumber =
-                                stmt.getJavaSourceStartLineNumber();
-
-                        if (lineNumber <= 0) break;
-
-                        String fieldRefStr =
-                                base.toString() + ".<" +
-                                field.getDeclaringClass().getName() + ": " +
-                                field.getType() + " " +
-                                field.getName() + ">";
-
-                        String replacementVar =
-                                availLoad.target.toString();
-
-                        if (DEBUG) {
-                            System.out.println(">>> REDUNDANT LOAD FOUND!");
-                            System.out.println("    Replacing with: "
-                                    + replacementVar);
-                        }
-
-                        redundantLoads.add(new RedundantLoadInfo(
-                                lineNumber,
-                                fieldRefStr,
-                                replacementVar,
-                                replacementVar
-                        ));
-
-                        break;
+                    RedundantLoadInfo info = new RedundantLoadInfo(
+                            lineNumber,
+                            fieldRefStr,
+                            replacementVar,
+                            replacementVar
+                    );
+                    if (frequencies != null) {
+                        info.frequency = frequencies.frequency(unit);
                     }
+                    if (instrumenter != null) {
+                        instrumenter.markRedundant(unit);
+                    }
+                    redundantLoads.add(info);
                 }
             }
         }
@@ -221,11 +492,32 @@ public class PA2 {
 
     Collections.sort(redundantLoads);
 
+    // Runs last: both passes change the body
+    if (config.deadStores || config.scalarReplace) {
+        if (config.deadStores) {
+            findDeadStores(method, body, pointsTo, escape);
+        }
+        if (config.scalarReplace) {
+            List<String> replaced =
+                    new ScalarReplacer(body, graph, pointsTo, escape).run();
+            if (!replaced.isEmpty()) {
+                System.out.println("[Scalar replacement] " + method.getSignature()
+                        + ": " + String.join(", ", replaced));
+            }
+        }
+    }
+
     if (DEBUG) {
         System.out.println("\n======= REDUNDANT LOAD SUMMARY =======");
         for (RedundantLoadInfo info : redundantLoads) {
             System.out.println(info);
         }
+        System.out.println("Type filter: " + typeFilter.rejected + " of "
+                + typeFilter.queries + " alias checks rejected so far");
+        System.out.println("Points-to cache: " + pointsTo.getHits() + " of "
+                + pointsTo.getQueries() + " queries answered from cache");
+        System.out.println("Load index: " + contents.reused + " of "
+                + contents.queries + " field contents carried over from earlier units");
         System.out.println("======================================\n");
     }
 
@@ -233,6 +525,38 @@ public class PA2 {
 }
 
     
+    private static void findDeadStores(SootMethod method, Body body,
+                                       PointsToBackend pointsTo, EscapeAnalysis escape) {
+        DeadStoreAnalysis analysis = new DeadStoreAnalysis(
+                new ExceptionalUnitGraph(body), pointsTo, escape, purityModel);
+
+        List<DeadStoreInfo> dead = new ArrayList<>();
+        for (Unit unit : analysis.getDeadStores()) {
+            int line = unit.getJavaSourceStartLineNumber();
+            if (line > 0) {
+                dead.add(new DeadStoreInfo(line, unit.toString()));
+            }
+            if (config.deleteDeadStores) {
+                body.getUnits().remove(unit);
+            }
+        }
+
+        if (!dead.isEmpty()) {
+            Collections.sort(dead);
+            // Methods may be analyzed concurrently (--pipeline)
+            synchronized (deadStoreResults) {
+                deadStoreResults
+                        .computeIfAbsent(method.getDeclaringClass().getName(), k -> new TreeMap<>())
+                        // Overloads share the name; keep the stores of all of them
+                        .merge(method.getName(), dead, (a, b) -> {
+                            a.addAll(b);
+                            Collections.sort(a);
+                            return a;
+                        });
+            }
+        }
+    }
+    
     private static boolean isFieldLoad(Stmt stmt) {
         if (stmt instanceof AssignStmt) {
             AssignStmt assign = (AssignStmt) stmt;
@@ -268,12 +592,81 @@ public class PA2 {
         }
     }
     
+    // Loads saved per call, highest first, then the total per class
+    private static void printRanked(Map<String, Map<String, List<RedundantLoadInfo>>> results) {
+        List<String[]> rows = new ArrayList<>();
+        List<Double> savings = new ArrayList<>();
+        Map<String, Double> perClass = new TreeMap<>();
+        
+        for (Map.Entry<String, Map<String, List<RedundantLoadInfo>>> classEntry : results.entrySet()) {
+            for (Map.Entry<String, List<RedundantLoadInfo>> methodEntry : classEntry.getValue().entrySet()) {
+                for (RedundantLoadInfo load : methodEntry.getValue()) {
+                    rows.add(new String[] { classEntry.getKey(), methodEntry.getKey(),
+                            load.lineNumber + ": " + load.jimpleStmt + " " + load.replacementVar + ";" });
+                    savings.add(load.frequency);
+                    perClass.merge(classEntry.getKey(), load.frequency, Double::sum);
+                }
+            }
+        }
+        
+        Integer[] order = new Integer[rows.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        // Stable, so equal estimates keep class, method and line order
+        Arrays.sort(order, (a, b) -> Double.compare(savings.get(b), savings.get(a)));
+        
+        System.out.println("Ranked by estimated loads saved per call:");
+        for (int i : order) {
+            String[] row = rows.get(i);
+            System.out.println(String.format("%12.1f  ", savings.get(i))
+                    + row[0] + ": " + row[1] + "  " + row[2]);
+        }
+        
+        System.out.println("Per class:");
+        perClass.entrySet().stream()
+                .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
+                .forEach(e -> System.out.println(String.format("%12.1f  ", e.getValue()) + e.getKey()));
+    }
+    
+    private static void printDeadStores(Map<String, Map<String, List<DeadStoreInfo>>> results) {
+        if (results.isEmpty()) return;
+        
+        System.out.println("Dead stores:");
+        for (Map.Entry<String, Map<String, List<DeadStoreInfo>>> classEntry : results.entrySet()) {
+            for (Map.Entry<String, List<DeadStoreInfo>> methodEntry : classEntry.getValue().entrySet()) {
+                System.out.println(classEntry.getKey() + ": " + methodEntry.getKey());
+                for (DeadStoreInfo store : methodEntry.getValue()) {
+                    // Format: LineNumber: FieldStoreStatement;
+                    System.out.println(store.lineNumber + ": " + store.jimpleStmt + ";");
+                }
+            }
+        }
+    }
+    
+    // A field store that is overwritten before any read
+    static class DeadStoreInfo implements Comparable<DeadStoreInfo> {
+        int lineNumber;
+        String jimpleStmt;
+        
+        DeadStoreInfo(int lineNumber, String jimpleStmt) {
+            this.lineNumber = lineNumber;
+            this.jimpleStmt = jimpleStmt;
+        }
+        
+        @Override
+        public int compareTo(DeadStoreInfo other) {
+            return Integer.compare(this.lineNumber, other.lineNumber);
+        }
+    }
+    
     // Helper class to store redundant load information
     static class RedundantLoadInfo implements Comparable<RedundantLoadInfo> {
         int lineNumber;
         String jimpleStmt;
         String targetVar;
         String replacementVar;
+        // Estimated executions per call of the method (--rank), 1 otherwise;
+        // with --profile also multiplied by the samples of the method
+        double frequency = 1;
         
         RedundantLoadInfo(int lineNumber, String jimpleStmt, String targetVar, String replacementVar) {
             this.lineNumber = lineNumber;
@@ -288,14 +681,21 @@ public class PA2 {
         }
     }
     
-    // Represents a field load
+    // Represents a field load, or with a non-empty prefix the access path
+    // base.prefix[0]...prefix[n-1].field (see AccessPaths)
     static class FieldLoad {
         Value base;
+        List<SootField> prefix;
         SootField field;
         Value target;
         
         FieldLoad(Value base, SootField field, Value target) {
+            this(base, Collections.emptyList(), field, target);
+        }
+        
+        FieldLoad(Value base, List<SootField> prefix, SootField field, Value target) {
             this.base = base;
+            this.prefix = prefix;
             this.field = field;
             this.target = target;
         }
@@ -304,23 +704,38 @@ public class PA2 {
         public boolean equals(Object o) {
             if (!(o instanceof FieldLoad)) return false;
             FieldLoad other = (FieldLoad) o;
-            return base.equals(other.base) && field.equals(other.field);
+            return base.equals(other.base) && field.equals(other.field)
+                    && prefix.equals(other.prefix);
         }
         
         @Override
         public int hashCode() {
-            return Objects.hash(base, field);
+            return Objects.hash(base, prefix, field);
         }
         
         @Override
         public String toString() {
-            return base + "." + field.getName() + " -> " + target;
+            StringBuilder path = new StringBuilder(base.toString());
+            for (SootField f : prefix) {
+                path.append('.').append(f.getName());
+            }
+            return path + "." + field.getName() + " -> " + target;
         }
     }
 }
 
 // Intraprocedural Field-Sensitive Points-to Analysis
-class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>> {
+// Objects from outside the method get placeholders: THIS, P<n> for
+// reference parameters and S:<class>.<field> for static fields. A load
+// through a placeholder that nothing was stored to materializes the field
+// object on first use (THIS.next, THIS.next.next, ...), up to
+// MAX_PLACEHOLDER_DEPTH fields; beyond that the value has no objects.
+// Distinct placeholders are assumed not to alias, as in access-path heap
+// models; callers passing aliased arguments need --pta=spark.
+class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>>
+        implements PointsToBackend {
+    
+    static final int MAX_PLACEHOLDER_DEPTH = 3;
     
     private Body body;
     private Map<Unit, Map<Value, Set<String>>> unitToPointsTo;
@@ -328,12 +743,83 @@ class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>
     // Heap: Object -> (field -> pointsTo set)
     private Map<String, Map<String, Set<String>>> heap;
     
+    // Placeholder -> number of fields loaded to reach it
+    private Map<String, Integer> placeholderDepth;
+    
+    // Huge methods keep the per-unit sets off the heap (--spill-threshold):
+    // per unit the number of variables, then variable, count, objects...
+    private boolean spill;
+    private FactStore spilled;
+    private FactStore.Interner<Value> variables;
+    private FactStore.Interner<String> objects;
+    
+    // Print the sets and the heap after each unit
+    private boolean trace;
+    
     public PointsToAnalysis(UnitGraph graph, Body body) {
+        this(graph, body, false, true);
+    }
+    
+    public PointsToAnalysis(UnitGraph graph, Body body, boolean spill, boolean trace) {
         super(graph);
         this.body = body;
+        this.trace = trace;
         this.unitToPointsTo = new HashMap<>();
         this.heap = new HashMap<>();
+        this.placeholderDepth = new HashMap<>();
+        this.spill = spill;
         doAnalysis();
+        if (spill) {
+            spill(graph);
+        }
+    }
+    
+    // The flow after each unit is what unitToPointsTo would have held
+    private void spill(UnitGraph graph) {
+        variables = new FactStore.Interner<>(false);
+        objects = new FactStore.Interner<>(false);
+        try {
+            FactStore store = new FactStore();
+            for (Unit unit : graph) {
+                Map<Value, Set<String>> out = getFlowAfter(unit);
+                store.add(out.size());
+                for (Map.Entry<Value, Set<String>> entry : out.entrySet()) {
+                    store.add(variables.id(entry.getKey()));
+                    store.add(entry.getValue().size());
+                    for (String obj : entry.getValue()) {
+                        store.add(objects.id(obj));
+                    }
+                }
+                store.end(unit);
+            }
+            store.seal();
+            spilled = store;
+        } catch (IOException e) {
+            System.err.println("Warning: keeping points-to sets on the heap: " + e.getMessage());
+            for (Unit unit : graph) {
+                unitToPointsTo.put(unit, getFlowAfter(unit));
+            }
+        }
+        // Only the points-to table is queried after the fixpoint
+        unitToBeforeFlow.clear();
+        unitToAfterFlow.clear();
+    }
+    
+    private Set<String> placeholder(String name, int depth) {
+        placeholderDepth.putIfAbsent(name, depth);
+        heap.putIfAbsent(name, new HashMap<>());
+        return new HashSet<>(Collections.singleton(name));
+    }
+    
+    // Field object of a placeholder, created on the first access
+    private void materialize(String obj, String fieldName) {
+        Integer depth = placeholderDepth.get(obj);
+        if (depth == null || depth >= MAX_PLACEHOLDER_DEPTH) return;
+        
+        Map<String, Set<String>> fieldMap = heap.computeIfAbsent(obj, k -> new HashMap<>());
+        if (!fieldMap.containsKey(fieldName)) {
+            fieldMap.put(fieldName, placeholder(obj + "." + fieldName, depth + 1));
+        }
     }
     
     @Override
@@ -346,6 +832,22 @@ class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>
         
         Stmt stmt = (Stmt) unit;
         
+        /* =============================
+           0. r0 := @this, r1 := @parameter0
+           ============================= */
+        if (stmt instanceof IdentityStmt) {
+
+            IdentityStmt identity = (IdentityStmt) stmt;
+            Value right = identity.getRightOp();
+
+            if (right instanceof ThisRef) {
+                out.put(identity.getLeftOp(), placeholder("THIS", 0));
+            } else if (right instanceof ParameterRef && right.getType() instanceof RefLikeType) {
+                out.put(identity.getLeftOp(),
+                        placeholder("P" + ((ParameterRef) right).getIndex(), 0));
+            }
+        }
+        
         if (stmt instanceof AssignStmt) {
 
             AssignStmt assign = (AssignStmt) stmt;
@@ -395,6 +897,7 @@ class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>
 
                 for (String obj : baseObjects) {
 
+                    materialize(obj, fieldName);
                     Map<String, Set<String>> fieldMap = heap.get(obj);
 
                     if (fieldMap != null) {
@@ -408,6 +911,17 @@ class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>
                 out.put(left, result);
             }
 
+            /* =============================
+               3b. x = C.f   (STATIC FIELD LOAD)
+               ============================= */
+            else if (right instanceof StaticFieldRef && left instanceof Local
+                    && right.getType() instanceof RefLikeType) {
+
+                SootField field = ((StaticFieldRef) right).getField();
+                out.put(left, placeholder(
+                        "S:" + field.getDeclaringClass().getName() + "." + field.getName(), 0));
+            }
+
             /* =============================
                4. o.f = x   (FIELD STORE)
                ============================= */
@@ -425,6 +939,8 @@ class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>
 
                 for (String obj : baseObjects) {
 
+                    // A weak update keeps what the field held on entry
+                    materialize(obj, fieldName);
                     heap.putIfAbsent(obj, new HashMap<>());
 
                     Map<String, Set<String>> fieldMap = heap.get(obj);
@@ -441,8 +957,13 @@ class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>
         }
         
 
-        // Store result for this unit
-        unitToPointsTo.put(unit, deepCopy(out));
+        // Store result for this unit (spilled ones are taken after the fixpoint)
+        if (!spill) {
+            unitToPointsTo.put(unit, deepCopy(out));
+        }
+        if (!trace) {
+            return;
+        }
         System.out.println("=================================================");
         System.out.println("UNIT: " + unit);
         System.out.println("Line: " + unit.getJavaSourceStartLineNumber());
@@ -533,13 +1054,36 @@ class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>
         return copy;
     }
     
+    @Override
     public Set<String> getPointsToSet(Value var, Unit unit) {
+        if (spilled != null) {
+            return spilledPointsToSet(var, unit);
+        }
         Map<Value, Set<String>> pointsTo = unitToPointsTo.get(unit);
         if (pointsTo != null && pointsTo.containsKey(var)) {
             return pointsTo.get(var);
         }
         return Collections.emptySet();
     }
+    private Set<String> spilledPointsToSet(Value var, Unit unit) {
+        int id = variables.find(var);
+        int[] record = spilled.get(unit);
+        if (id < 0 || record == null) {
+            return Collections.emptySet();
+        }
+        for (int i = 1, v = 0; v < record[0]; v++, i += 2 + record[i + 1]) {
+            if (record[i] == id) {
+                Set<String> result = new HashSet<>();
+                for (int j = 0; j < record[i + 1]; j++) {
+                    result.add(objects.value(record[i + 2 + j]));
+                }
+                return result;
+            }
+        }
+        return Collections.emptySet();
+    }
+    
+    @Override
     public Set<String> getFieldPointsToSet(Value base,
                                         SootField field,
                                         Unit u) {
@@ -564,6 +1108,7 @@ class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>
 
         return result;
     }
+    @Override
     public Set<String> getReachableObjects(Set<String> roots) {
 
         Set<String> visited = new HashSet<>(roots);
@@ -585,108 +1130,79 @@ class PointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<Value, Set<String>>
 
         return visited;
     }
-
-
+    
+    // Placeholders reach the heap through weak updates (this.b = t puts
+    // THIS.a into THIS.b), so sharing one says nothing about the values
+    @Override
+    public boolean identifiesValue(String obj) {
+        return !placeholderDepth.containsKey(obj);
+    }
 }
 
 
 // Available Loads Analysis
-class AvailableLoadsAnalysis extends ForwardFlowAnalysis<Unit, Set<PA2.FieldLoad>> {
+class AvailableLoadsAnalysis extends ForwardFlowAnalysis<Unit, Set<PA2.FieldLoad>>
+        implements AvailableLoadsQuery {
+    
+    private AvailableLoadsTransfer transfer;
     
-    private PointsToAnalysis pointsTo;
+    // Huge methods keep the flow before each unit off the heap
+    // (--spill-threshold): the number of loads, then their ids
+    private FactStore spilled;
+    private FactStore.Interner<PA2.FieldLoad> loads;
     
-    public AvailableLoadsAnalysis(UnitGraph graph, PointsToAnalysis pointsTo) {
+    public AvailableLoadsAnalysis(UnitGraph graph, AvailableLoadsTransfer transfer) {
+        this(graph, transfer, false);
+    }
+    
+    public AvailableLoadsAnalysis(UnitGraph graph, AvailableLoadsTransfer transfer, boolean spill) {
         super(graph);
-        this.pointsTo = pointsTo;
+        this.transfer = transfer;
         doAnalysis();
+        if (spill) {
+            spill(graph);
+        }
     }
     
-    @Override
-    protected void flowThrough(Set<PA2.FieldLoad> in, Unit unit, Set<PA2.FieldLoad> out) {
-        Stmt stmt = (Stmt) unit;
-        
-        // Start with incoming available loads
-        copy(in, out);
-        
-        // Kill loads that are invalidated
-        if (stmt instanceof AssignStmt) {
-            AssignStmt assign = (AssignStmt) stmt;
-            Value left = assign.getLeftOp();
-            
-            // If we're writing to a field, kill all loads of that field
-            if (left instanceof InstanceFieldRef) {
-                InstanceFieldRef fieldRef = (InstanceFieldRef) left;
-                Value base = fieldRef.getBase();
-                SootField field = fieldRef.getField();
-                Set<String> basePointsTo = pointsTo.getPointsToSet(base, unit);
-                
-                // Kill all loads that may alias with this write
-                out.removeIf(load -> {
-                    Set<String> loadBasePointsTo = pointsTo.getPointsToSet(load.base, unit);
-                    return !Collections.disjoint(basePointsTo, loadBasePointsTo) && 
-                           load.field.equals(field);
-                });
-            }
-            
-            // If we're reading from a field, generate this load
-            Value right = assign.getRightOp();
-            if (right instanceof InstanceFieldRef) {
-                InstanceFieldRef fieldRef = (InstanceFieldRef) right;
-                PA2.FieldLoad newLoad = new PA2.FieldLoad(
-                    fieldRef.getBase(),
-                    fieldRef.getField(),
-                    left
-                );
-                out.add(newLoad);
+    private void spill(UnitGraph graph) {
+        // By identity: equal loads may differ in the local holding them
+        loads = new FactStore.Interner<>(true);
+        try {
+            FactStore store = new FactStore();
+            for (Unit unit : graph) {
+                Set<PA2.FieldLoad> before = getFlowBefore(unit);
+                store.add(before.size());
+                for (PA2.FieldLoad load : before) {
+                    store.add(loads.id(load));
+                }
+                store.end(unit);
             }
+            store.seal();
+            spilled = store;
+        } catch (IOException e) {
+            System.err.println("Warning: keeping available loads on the heap: " + e.getMessage());
+            return;
         }
-            /* =============================
-        3️⃣ Method call kill
-        ============================= */
-        if (stmt.containsInvokeExpr()) {
-
-            InvokeExpr invoke = stmt.getInvokeExpr();
-
-            Set<Value> receiverObjs = new HashSet<>();
-
-            // receiver
-            if (invoke instanceof InstanceInvokeExpr) {
-                receiverObjs.add(
-                    ((InstanceInvokeExpr) invoke).getBase()
-                );
-            }
-
-            // arguments
-            for (Value arg : invoke.getArgs()) {
-                receiverObjs.add(arg);
-            }
-            // Step 1: convert Value → abstract objects
-            Set<String> receiverHeapObjs = new HashSet<>();
-
-            for (Value v : receiverObjs) {
-                receiverHeapObjs.addAll(
-                    pointsTo.getPointsToSet(v, stmt)
-                );
+        unitToBeforeFlow.clear();
+        unitToAfterFlow.clear();
+    }
+    
+    @Override
+    protected void flowThrough(Set<PA2.FieldLoad> in, Unit unit, Set<PA2.FieldLoad> out) {
+        transfer.apply(in, unit, out);
+    }
+    
+    @Override
+    public Set<PA2.FieldLoad> loadsBefore(Unit unit) {
+        if (spilled != null) {
+            Set<PA2.FieldLoad> before = new HashSet<>();
+            int[] record = spilled.get(unit);
+            for (int i = 1; record != null && i <= record[0]; i++) {
+                before.add(loads.value(record[i]));
             }
-
-           
-            Set<String> reachable = pointsTo.getReachableObjects(receiverHeapObjs);
-            System.out.println("Call stmt: " + stmt);
-            System.out.println("Receiver heap objs: " + receiverHeapObjs);
-            System.out.println("Reachable: " + reachable);
-
-
-            out.removeIf(load -> {
-                       Set<String> objs =
-                       pointsTo.getPointsToSet(load.base,
-                       unit);
-                     System.out.println("Checking load: " + load); 
-                     System.out.println("Load resolves to: " + objs);
-                    return out.contains(new PA2.FieldLoad(load.base,load.field,null));
-            });
-
+            return before;
         }
-
+        return getFlowBefore(unit);
     }
     
     @Override
@@ -712,4 +1228,4 @@ class AvailableLoadsAnalysis extends ForwardFlowAnalysis<Unit, Set<PA2.FieldLoad
         dest.clear();
         dest.addAll(source);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+import soot.*;
+
+import java.util.*;
+
+// Source of points-to sets for the available loads analysis.
+//
+// Abstract objects are plain strings; only their identity matters. An empty
+// set means the backend knows nothing about the value. Flow-insensitive
+// backends ignore the unit argument.
+interface PointsToBackend {
+
+    // Objects var may point to right after unit
+    Set<String> getPointsToSet(Value var, Unit unit);
+
+    // Objects base.field may point to right after unit
+    Set<String> getFieldPointsToSet(Value base, SootField field, Unit unit);
+
+    // roots plus every object reachable from them through fields
+    Set<String> getReachableObjects(Set<String> roots);
+
+    // Do two field loads that may both yield obj read the same value?
+    // Only then is obj evidence for the redundancy lookup; objects that
+    // stand for unknown values (placeholders) only serve kills and aliasing.
+    boolean identifiesValue(String obj);
+}
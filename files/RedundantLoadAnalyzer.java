@@ -0,0 +1,87 @@
+import soot.*;
+
+import java.util.*;
+
+// Entry point for tools that run the analysis in their own JVM, such as a
+// build step after compilation. Options are the command line ones
+// ("--changed-only=target/pa2.state", "--rank", ...); results are handed
+// over per method instead of being printed.
+//
+//   List<RedundantLoadAnalyzer.Result> loads =
+//       RedundantLoadAnalyzer.analyze("target/classes", Arrays.asList("--constructors"));
+//
+// Soot keeps global state, so calls are serialized.
+public final class RedundantLoadAnalyzer {
+
+    public static final class Result {
+        public final String className;
+        public final String methodName;
+        public final String signature;
+        public final boolean initializer;
+        public final int line;
+        public final String load;
+        public final String replacement;
+        // Estimated executions saved (1 unless --rank or --profile)
+        public final double estimate;
+
+        Result(SootMethod method, boolean initializer, PA2.RedundantLoadInfo info) {
+            this.className = method.getDeclaringClass().getName();
+            this.methodName = method.getName();
+            this.signature = method.getSignature();
+            this.initializer = initializer;
+            this.line = info.lineNumber;
+            this.load = info.jimpleStmt;
+            this.replacement = info.replacementVar;
+            this.estimate = info.frequency;
+        }
+
+        @Override
+        public String toString() {
+            return className + ": " + methodName + " " + line + ": " + load + " " + replacement + ";";
+        }
+    }
+
+    // Called once per analyzed method that has redundant loads
+    public interface Listener {
+        void method(String signature, List<Result> results);
+    }
+
+    private RedundantLoadAnalyzer() {
+    }
+
+    public static synchronized void analyze(String classDir, List<String> options, Listener listener) {
+        List<String> args = new ArrayList<>();
+        args.add(classDir);
+        args.addAll(options);
+        AnalysisConfig config = AnalysisConfig.parse(args.toArray(new String[0]));
+        if (config == null) {
+            throw new IllegalArgumentException("Invalid options: " + options);
+        }
+
+        ResultSink sink = new ResultSink() {
+            @Override
+            public void method(SootMethod method, boolean initializer, List<PA2.RedundantLoadInfo> loads) {
+                if (loads.isEmpty()) return;
+                List<Result> results = new ArrayList<>();
+                for (PA2.RedundantLoadInfo info : loads) {
+                    results.add(new Result(method, initializer, info));
+                }
+                listener.method(method.getSignature(), Collections.unmodifiableList(results));
+            }
+
+            @Override
+            public void close() {
+                // nothing buffered
+            }
+        };
+        if (!PA2.run(config, sink)) {
+            throw new IllegalStateException("Analysis of " + classDir + " failed, see stderr");
+        }
+    }
+
+    public static List<Result> analyze(String classDir, List<String> options) {
+        List<Result> all = new ArrayList<>();
+        analyze(classDir, options, (signature, results) -> all.addAll(results));
+        return all;
+    }
+}
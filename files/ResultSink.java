@@ -0,0 +1,68 @@
+import soot.*;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Destination of redundant loads that are written as each method is
+// analyzed instead of being collected until the end (--format, --results,
+// --external-sort). Results are keyed by the full method signature, so
+// overloads stay apart.
+interface ResultSink extends Closeable {
+
+    void method(SootMethod method, boolean initializer,
+                List<PA2.RedundantLoadInfo> loads) throws IOException;
+
+    // Sink for the configured output, or null for the in-memory text report
+    static ResultSink open(AnalysisConfig config) throws IOException {
+        switch (config.format) {
+            case AnalysisConfig.FORMAT_JSONL:
+                return new JsonLinesSink(writer(config.resultsFile));
+            case AnalysisConfig.FORMAT_SARIF:
+                return new SarifSink(writer(config.resultsFile));
+            default:
+                return config.sortRunSize > 0
+                        ? new SortedTextSink(writer(config.resultsFile), config.sortRunSize)
+                        : null;
+        }
+    }
+
+    // Buffered writer over a file channel, or over the process's stdout,
+    // which System.setOut does not redirect (see PA2.run)
+    static Writer writer(String path) throws IOException {
+        if (path == null) {
+            // Later reports still go to stdout, after what is printed so far
+            System.out.flush();
+            OutputStream stdout = new FileOutputStream(FileDescriptor.out);
+            return new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8)) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        FileChannel channel = FileChannel.open(Paths.get(path),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,58 @@
+import soot.*;
+
+import java.io.*;
+import java.util.*;
+
+// --format=sarif: a SARIF 2.1.0 log with one run whose results array is
+// streamed; the enclosing objects are opened first and closed by close().
+// Locations name the source file as the class path plus .java (the
+// SourceFile attribute is not consulted) and the method by signature.
+class SarifSink implements ResultSink {
+
+    static final String RULE = "redundant-field-load";
+
+    // Everything before the single run object
+    static final String LOG_HEADER = "{\"version\":\"2.1.0\","
+            + "\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\","
+            + "\"runs\":[";
+
+    private final Writer out;
+    private boolean first = true;
+
+    SarifSink(Writer out) throws IOException {
+        this.out = out;
+        out.write(LOG_HEADER + "{\"tool\":{\"driver\":{\"name\":\"PA2\",\"rules\":[{"
+                + "\"id\":\"" + RULE + "\","
+                + "\"shortDescription\":{\"text\":\"Field load whose value is already held by a local\"}"
+                + "}]}},\"results\":[\n");
+    }
+
+    @Override
+    public void method(SootMethod method, boolean initializer,
+                       List<PA2.RedundantLoadInfo> loads) throws IOException {
+        String uri = method.getDeclaringClass().getName().replace('.', '/') + ".java";
+        for (PA2.RedundantLoadInfo load : loads) {
+            if (!first) out.write(",\n");
+            first = false;
+            out.write("{\"ruleId\":\"" + RULE + "\",\"level\":\"note\","
+                    + "\"message\":{\"text\":" + ResultSink.quote(
+                            load.jimpleStmt + " is redundant, reuse " + load.replacementVar) + "},"
+                    + "\"locations\":[{\"physicalLocation\":{"
+                    + "\"artifactLocation\":{\"uri\":" + ResultSink.quote(uri) + "},"
+                    + "\"region\":{\"startLine\":" + load.lineNumber + "}},"
+                    + "\"logicalLocations\":[{\"fullyQualifiedName\":"
+                    + ResultSink.quote(method.getSignature()) + ",\"kind\":\"function\"}]}],"
+                    + "\"properties\":{\"initializer\":" + initializer
+                    + ",\"estimate\":" + load.frequency + "}}");
+        }
+        if (!loads.isEmpty()) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.write("\n]}]}\n");
+        out.close();
+    }
+}
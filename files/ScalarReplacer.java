@@ -0,0 +1,182 @@
+import soot.*;
+import soot.jimple.*;
+import soot.toolkits.graph.*;
+
+import java.util.*;
+
+// Scalar replacement of allocations that never leave the method.
+//
+// An allocation site qualifies when
+//   - its object does not escape (EscapeAnalysis),
+//   - it is the only allocation with that abstract object and does not sit
+//     in a loop, so the abstract object is one concrete object,
+//   - every local that may hold it holds nothing else, and is only copied,
+//     used as the base of field loads and stores, or passed to a trivial
+//     constructor.
+// Each field of the object then becomes a local: the allocation is replaced
+// by default-value initializations, loads and stores read and write the
+// locals, and the copies and the constructor call are removed.
+class ScalarReplacer {
+
+    private final Body body;
+    private final UnitGraph graph;
+    private final PointsToBackend pointsTo;
+    private final EscapeAnalysis escape;
+
+    private int fieldLocals = 0;
+
+    ScalarReplacer(Body body, UnitGraph graph, PointsToBackend pointsTo, EscapeAnalysis escape) {
+        this.body = body;
+        this.graph = graph;
+        this.pointsTo = pointsTo;
+        this.escape = escape;
+    }
+
+    // Replaces every qualifying allocation; returns the abstract objects
+    List<String> run() {
+        Map<String, List<Unit>> sites = new HashMap<>();
+        for (Unit unit : body.getUnits()) {
+            if (unit instanceof AssignStmt && ((AssignStmt) unit).getRightOp() instanceof NewExpr) {
+                for (String obj : pointsTo.getPointsToSet(((AssignStmt) unit).getLeftOp(), unit)) {
+                    sites.computeIfAbsent(obj, k -> new ArrayList<>()).add(unit);
+                }
+            }
+        }
+
+        List<String> replaced = new ArrayList<>();
+        for (Map.Entry<String, List<Unit>> site : new TreeMap<>(sites).entrySet()) {
+            if (site.getValue().size() != 1) continue;
+            Unit alloc = site.getValue().get(0);
+            if (escape.escapes(site.getKey()) || inLoop(alloc)) continue;
+
+            Plan plan = plan(site.getKey(), (AssignStmt) alloc);
+            if (plan != null) {
+                apply(plan);
+                replaced.add(site.getKey());
+            }
+        }
+        return replaced;
+    }
+
+    private boolean inLoop(Unit alloc) {
+        Set<Unit> seen = new HashSet<>();
+        Deque<Unit> worklist = new ArrayDeque<>(graph.getSuccsOf(alloc));
+        while (!worklist.isEmpty()) {
+            Unit u = worklist.pop();
+            if (u == alloc) return true;
+            if (seen.add(u)) worklist.addAll(graph.getSuccsOf(u));
+        }
+        return false;
+    }
+
+    // Classifies every use of the object; null if one of them is not allowed
+    private Plan plan(String obj, AssignStmt alloc) {
+        Plan plan = new Plan(alloc);
+        plan.locals.add((Local) alloc.getLeftOp());
+
+        for (Unit unit : body.getUnits()) {
+            if (unit == alloc) continue;
+
+            for (ValueBox box : unit.getUseBoxes()) {
+                Value v = box.getValue();
+                if (!(v instanceof Local) || !pointsTo.getPointsToSet(v, unit).contains(obj)) continue;
+                if (!pointsTo.getPointsToSet(v, unit).equals(Collections.singleton(obj))) return null;
+                if (!classifyUse(plan, unit, (Local) v)) return null;
+            }
+        }
+
+        // Candidate locals must not hold anything else at any point
+        for (Unit unit : body.getUnits()) {
+            if (unit == alloc || plan.copies.contains(unit)) continue;
+            for (ValueBox box : unit.getDefBoxes()) {
+                if (plan.locals.contains(box.getValue())) return null;
+            }
+        }
+        return plan;
+    }
+
+    private boolean classifyUse(Plan plan, Unit unit, Local v) {
+        if (unit instanceof InvokeStmt) {
+            InvokeExpr invoke = ((InvokeStmt) unit).getInvokeExpr();
+            if (invoke instanceof SpecialInvokeExpr &&
+                ((SpecialInvokeExpr) invoke).getBase() == v &&
+                EscapeAnalysis.isTrivialConstructorCall(invoke)) {
+                plan.constructors.add(unit);
+                return true;
+            }
+            return false;
+        }
+        if (!(unit instanceof AssignStmt)) return false;
+
+        Value left = ((AssignStmt) unit).getLeftOp();
+        Value right = ((AssignStmt) unit).getRightOp();
+
+        if (right == v && left instanceof Local) {
+            plan.copies.add(unit);
+            plan.locals.add((Local) left);
+            return true;
+        }
+        if (right instanceof InstanceFieldRef && ((InstanceFieldRef) right).getBase() == v) {
+            plan.accesses.add(unit);
+            plan.fields.add(((InstanceFieldRef) right).getField());
+            return true;
+        }
+        // The object itself must not be the stored value
+        if (left instanceof InstanceFieldRef && ((InstanceFieldRef) left).getBase() == v && right != v) {
+            plan.accesses.add(unit);
+            plan.fields.add(((InstanceFieldRef) left).getField());
+            return true;
+        }
+        return false;
+    }
+
+    private void apply(Plan plan) {
+        Map<SootField, Local> scalars = new LinkedHashMap<>();
+        for (SootField field : plan.fields) {
+            Local local = Jimple.v().newLocal("$" + field.getName() + "_" + fieldLocals++, field.getType());
+            body.getLocals().add(local);
+            scalars.put(field, local);
+        }
+
+        for (Unit unit : plan.accesses) {
+            AssignStmt assign = (AssignStmt) unit;
+            if (assign.getRightOp() instanceof InstanceFieldRef) {
+                assign.setRightOp(scalars.get(((InstanceFieldRef) assign.getRightOp()).getField()));
+            } else {
+                assign.setLeftOp(scalars.get(((InstanceFieldRef) assign.getLeftOp()).getField()));
+            }
+        }
+
+        // The fields start out with their default values
+        for (Map.Entry<SootField, Local> e : scalars.entrySet()) {
+            Unit init = Jimple.v().newAssignStmt(e.getValue(), defaultValue(e.getKey().getType()));
+            init.addAllTagsOf(plan.alloc);
+            body.getUnits().insertBefore(init, plan.alloc);
+        }
+
+        body.getUnits().remove(plan.alloc);
+        for (Unit unit : plan.copies) body.getUnits().remove(unit);
+        for (Unit unit : plan.constructors) body.getUnits().remove(unit);
+    }
+
+    private static Value defaultValue(Type type) {
+        if (type instanceof LongType) return LongConstant.v(0);
+        if (type instanceof FloatType) return FloatConstant.v(0);
+        if (type instanceof DoubleType) return DoubleConstant.v(0);
+        if (type instanceof PrimType) return IntConstant.v(0);
+        return NullConstant.v();
+    }
+
+    private static class Plan {
+        final AssignStmt alloc;
+        final Set<Local> locals = new HashSet<>();
+        final Set<SootField> fields = new LinkedHashSet<>();
+        final List<Unit> accesses = new ArrayList<>();
+        final List<Unit> copies = new ArrayList<>();
+        final List<Unit> constructors = new ArrayList<>();
+
+        Plan(AssignStmt alloc) {
+            this.alloc = alloc;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import soot.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// --external-sort[=N]: the canonical text report (classes and methods in
+// name order, loads by line, constructors in their own section) built
+// with an external merge sort, so at most N results are held in memory.
+//
+// Each result becomes one record whose string order is the report order:
+//   section \t class \t method \t line \t sequence \t statement \t replacement
+// with the numbers zero-padded. Full buffers are sorted and spilled to
+// temporary run files; close() merges the runs and prints the report.
+// Overloads share one "Class: method" header, their loads merged by line.
+class SortedTextSink implements ResultSink {
+
+    private final Writer out;
+    private final int runSize;
+
+    private final List<String> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private long sequence = 0;
+
+    SortedTextSink(Writer out, int runSize) {
+        this.out = out;
+        this.runSize = runSize;
+    }
+
+    @Override
+    public void method(SootMethod method, boolean initializer,
+                       List<PA2.RedundantLoadInfo> loads) throws IOException {
+        for (PA2.RedundantLoadInfo load : loads) {
+            buffer.add(String.join("\t",
+                    initializer ? "1" : "0",
+                    method.getDeclaringClass().getName(),
+                    method.getName(),
+                    String.format("%010d", load.lineNumber),
+                    String.format("%019d", sequence++),
+                    load.jimpleStmt,
+                    load.replacementVar));
+            if (buffer.size() >= runSize) {
+                spill();
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer);
+        Path run = Files.createTempFile("pa2-run", ".tsv");
+        run.toFile().deleteOnExit();
+        Files.write(run, buffer, StandardCharsets.UTF_8);
+        runs.add(run);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+
+        List<BufferedReader> readers = new ArrayList<>();
+        // (current record, index of its run)
+        PriorityQueue<Object[]> heads = new PriorityQueue<>(
+                Comparator.comparing((Object[] h) -> (String) h[0]));
+        try {
+            for (Path run : runs) {
+                BufferedReader reader = Files.newBufferedReader(run, StandardCharsets.UTF_8);
+                readers.add(reader);
+                String first = reader.readLine();
+                if (first != null) {
+                    heads.add(new Object[] { first, readers.size() - 1 });
+                }
+            }
+
+            String section = "0";
+            String header = null;
+            while (!heads.isEmpty()) {
+                Object[] head = heads.poll();
+                String[] r = ((String) head[0]).split("\t", 7);
+
+                if (!r[0].equals(section)) {
+                    out.write("Constructors:\n");
+                    section = r[0];
+                    header = null;
+                }
+                String current = r[1] + ": " + r[2];
+                if (!current.equals(header)) {
+                    out.write(current + "\n");
+                    header = current;
+                }
+                // Format: LineNumber: FieldLoadStatement ReplacementVariable;
+                out.write(Integer.parseInt(r[3]) + ": " + r[5] + " " + r[6] + ";\n");
+
+                int index = (Integer) head[1];
+                String next = readers.get(index).readLine();
+                if (next != null) {
+                    heads.add(new Object[] { next, index });
+                }
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import soot.*;
+import soot.jimple.spark.pag.*;
+import soot.jimple.spark.sets.*;
+
+import java.util.*;
+
+// Points-to sets from SPARK (cg.spark), computed once for the whole program.
+//
+// SPARK is flow-insensitive and knows where parameters and field-loaded
+// values come from, which the intraprocedural analysis does not. Allocation
+// nodes are named "A<node number>".
+class SparkPointsToBackend implements PointsToBackend {
+
+    private final PAG pag;
+
+    // Allocation nodes seen so far, by name, for reachability queries.
+    // Shared by all methods, so queries are serialized (--pipeline).
+    private final Map<String, AllocNode> nodes = new HashMap<>();
+
+    SparkPointsToBackend(PAG pag) {
+        this.pag = pag;
+    }
+
+    @Override
+    public synchronized Set<String> getPointsToSet(Value var, Unit unit) {
+        if (!(var instanceof Local)) return Collections.emptySet();
+        return names(pag.reachingObjects((Local) var));
+    }
+
+    @Override
+    public synchronized Set<String> getFieldPointsToSet(Value base, SootField field, Unit unit) {
+        if (!(base instanceof Local)) return Collections.emptySet();
+        return names(pag.reachingObjects((Local) base, field));
+    }
+
+    @Override
+    public synchronized Set<String> getReachableObjects(Set<String> roots) {
+        Set<String> visited = new HashSet<>(roots);
+        Deque<String> worklist = new ArrayDeque<>(roots);
+
+        while (!worklist.isEmpty()) {
+            AllocNode node = nodes.get(worklist.pop());
+            if (node == null) continue;
+
+            for (AllocDotField f : node.getFields()) {
+                for (String t : names(f.getP2Set())) {
+                    if (visited.add(t)) worklist.push(t);
+                }
+            }
+        }
+
+        return visited;
+    }
+
+    // Flow- and context-insensitive may-sets: p.items and q.items both
+    // hold the node of the one `new ArrayList()` in their constructor, yet
+    // different lists. SPARK only kills and prunes aliases; redundant
+    // loads need the same base and field.
+    @Override
+    public boolean identifiesValue(String obj) {
+        return false;
+    }
+
+    private Set<String> names(PointsToSet set) {
+        if (!(set instanceof PointsToSetInternal)) return Collections.emptySet();
+
+        Set<String> result = new HashSet<>();
+        ((PointsToSetInternal) set).forall(new P2SetVisitor(pag) {
+            @Override
+            public void visit(Node n) {
+                if (n instanceof AllocNode) {
+                    String name = "A" + n.getNumber();
+                    nodes.putIfAbsent(name, (AllocNode) n);
+                    result.add(name);
+                }
+            }
+        });
+        return result;
+    }
+}
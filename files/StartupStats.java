@@ -0,0 +1,43 @@
+import soot.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.TimeUnit;
+
+// Cost of getting Soot ready (--startup-stats, --lazy-startup): wall time
+// from begin() to the end of class loading, the peak heap in between and
+// how many classes were loaded at which level.
+class StartupStats {
+
+    private static long start;
+
+    static void begin() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        start = System.nanoTime();
+    }
+
+    static String report() {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Scene scene = Scene.v();
+        return "[Startup] " + millis + " ms, peak heap " + (peakHeap() >> 20) + " MB, "
+                + scene.getApplicationClasses().size() + " application / "
+                + scene.getLibraryClasses().size() + " library / "
+                + scene.getPhantomClasses().size() + " phantom classes";
+    }
+
+    // Sum of the peaks of the heap pools, an upper bound of the real peak
+    static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
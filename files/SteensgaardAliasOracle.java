@@ -0,0 +1,185 @@
+import soot.*;
+import soot.jimple.*;
+
+import java.util.*;
+
+// Flow-insensitive, unification-based (Steensgaard-style) alias partition of
+// one method.
+//
+// Every reference local and every allocation site belongs to a class of
+// objects; assignments unify the classes on both sides, and each class has
+// one content class per field. One pass over the body with union-find gives
+// near-linear time. Two locals may alias only if they end up in the same
+// class, so a "no" from the oracle is safe to use for kill decisions.
+//
+// Objects that come from outside the method or leave it (parameters, this,
+// call results and arguments, static fields, array elements of unknown
+// origin, caught exceptions, return values) all share one UNKNOWN class.
+class SteensgaardAliasOracle {
+
+    private static final String ARRAY_ELEMENTS = "[]";
+
+    // Union-find over object classes
+    private final List<Integer> parent = new ArrayList<>();
+    private final List<Integer> rank = new ArrayList<>();
+    private final List<Map<String, Integer>> fields = new ArrayList<>();
+
+    private final Map<Local, Integer> localClass = new HashMap<>();
+    private final int unknown;
+
+    SteensgaardAliasOracle(Body body) {
+        unknown = newClass();
+
+        for (Unit unit : body.getUnits()) {
+            Stmt stmt = (Stmt) unit;
+
+            if (stmt.containsInvokeExpr()) {
+                InvokeExpr invoke = stmt.getInvokeExpr();
+                if (invoke instanceof InstanceInvokeExpr) {
+                    join(classOf(((InstanceInvokeExpr) invoke).getBase()), unknown);
+                }
+                for (Value arg : invoke.getArgs()) {
+                    join(classOf(arg), unknown);
+                }
+            }
+
+            if (stmt instanceof ReturnStmt) {
+                join(classOf(((ReturnStmt) stmt).getOp()), unknown);
+            } else if (stmt instanceof ThrowStmt) {
+                join(classOf(((ThrowStmt) stmt).getOp()), unknown);
+            } else if (stmt instanceof DefinitionStmt) {
+                DefinitionStmt def = (DefinitionStmt) stmt;
+                join(classOf(def.getLeftOp()), classOf(def.getRightOp()));
+            }
+        }
+    }
+
+    // May the two locals point to a common object?
+    boolean mayAlias(Value a, Value b) {
+        if (a.equals(b)) return true;
+        Integer ca = localClass.get(a);
+        Integer cb = localClass.get(b);
+        if (ca == null || cb == null) return false;
+        return find(ca) == find(cb);
+    }
+
+    // Representative of the class of a local, or -1 if it never holds a
+    // reference
+    int classId(Value v) {
+        Integer c = localClass.get(v);
+        return c == null ? -1 : find(c);
+    }
+
+    // May a.f1 and b.f2 hold a common object?
+    boolean mayAliasContents(Value a, SootField f1, Value b, SootField f2) {
+        Integer ca = localClass.get(a);
+        Integer cb = localClass.get(b);
+        if (ca == null || cb == null) return false;
+        return find(contentOf(ca, f1.getName())) == find(contentOf(cb, f2.getName()));
+    }
+
+    // Class of the objects a value may evaluate to, or null for primitives.
+    private Integer classOf(Value v) {
+        if (!(v.getType() instanceof RefLikeType)) return null;
+
+        if (v instanceof Local) {
+            Integer c = localClass.get(v);
+            if (c == null) {
+                c = newClass();
+                localClass.put((Local) v, c);
+            }
+            return c;
+        }
+        if (v instanceof CastExpr) {
+            return classOf(((CastExpr) v).getOp());
+        }
+        if (v instanceof AnyNewExpr) {
+            // One class per allocation site
+            return newClass();
+        }
+        if (v instanceof InstanceFieldRef) {
+            InstanceFieldRef ref = (InstanceFieldRef) v;
+            Integer base = classOf(ref.getBase());
+            return base == null ? unknown : contentOf(base, ref.getField().getName());
+        }
+        if (v instanceof ArrayRef) {
+            Integer base = classOf(((ArrayRef) v).getBase());
+            return base == null ? unknown : contentOf(base, ARRAY_ELEMENTS);
+        }
+        if (v instanceof NullConstant) {
+            return null;
+        }
+        return unknown;
+    }
+
+    private int contentOf(int c, String field) {
+        int root = find(c);
+        // Unknown objects have unknown contents
+        if (root == find(unknown)) return root;
+        Integer target = fields.get(root).get(field);
+        if (target == null) {
+            target = newClass();
+            fields.get(root).put(field, target);
+        }
+        return target;
+    }
+
+    private int newClass() {
+        int id = parent.size();
+        parent.add(id);
+        rank.add(0);
+        fields.add(new HashMap<>());
+        return id;
+    }
+
+    private int find(int c) {
+        int root = c;
+        while (parent.get(root) != root) root = parent.get(root);
+        while (parent.get(c) != root) {
+            int next = parent.get(c);
+            parent.set(c, root);
+            c = next;
+        }
+        return root;
+    }
+
+    private void join(Integer a, Integer b) {
+        if (a == null || b == null) return;
+
+        Deque<int[]> pending = new ArrayDeque<>();
+        pending.push(new int[] { a, b });
+
+        while (!pending.isEmpty()) {
+            int[] pair = pending.pop();
+            int ra = find(pair[0]);
+            int rb = find(pair[1]);
+            if (ra == rb) continue;
+
+            if (rank.get(ra) < rank.get(rb)) {
+                int t = ra; ra = rb; rb = t;
+            }
+            parent.set(rb, ra);
+            if (rank.get(ra).equals(rank.get(rb))) rank.set(ra, rank.get(ra) + 1);
+
+            // Unified objects have unified field contents
+            Map<String, Integer> into = fields.get(ra);
+            for (Map.Entry<String, Integer> e : fields.get(rb).entrySet()) {
+                Integer other = into.get(e.getKey());
+                if (other == null) {
+                    into.put(e.getKey(), e.getValue());
+                } else {
+                    pending.push(new int[] { other, e.getValue() });
+                }
+            }
+            fields.set(rb, Collections.emptyMap());
+
+            // Whatever an unknown object holds is unknown as well
+            if (ra == find(unknown)) {
+                for (Integer content : into.values()) {
+                    pending.push(new int[] { content, ra });
+                }
+                into.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import soot.*;
+
+import java.util.*;
+
+// Declared-type test that rules out aliasing before any points-to work.
+//
+// Two references can only denote the same object if some runtime type is
+// assignable to both declared types. Answers are cached per type pair, so
+// after warm-up a check is two hash lookups.
+class TypeAliasFilter {
+
+    private final FastHierarchy hierarchy;
+    private final boolean enabled;
+
+    private final Map<Type, Map<Type, Boolean>> cache = new HashMap<>();
+
+    int queries = 0;
+    int rejected = 0;
+
+    TypeAliasFilter(FastHierarchy hierarchy, boolean enabled) {
+        this.hierarchy = hierarchy;
+        this.enabled = enabled;
+    }
+
+    // May a reference of type a and a reference of type b point to the same object?
+    synchronized boolean mayAlias(Type a, Type b) {
+        if (!enabled) return true;
+
+        queries++;
+        Boolean answer = cache.computeIfAbsent(a, k -> new HashMap<>()).get(b);
+        if (answer == null) {
+            answer = compatible(a, b);
+            cache.get(a).put(b, answer);
+            cache.computeIfAbsent(b, k -> new HashMap<>()).put(a, answer);
+        }
+        if (!answer) rejected++;
+        return answer;
+    }
+
+    // May the bases of two accesses to the given fields be the same object?
+    // The base must be an instance of the field's declaring class, which is
+    // often more precise than the local's declared type.
+    boolean mayAlias(Value base1, SootField field1, Value base2, SootField field2) {
+        if (!enabled) return true;
+        return mayAlias(baseType(base1, field1), baseType(base2, field2));
+    }
+
+    private Type baseType(Value base, SootField field) {
+        Type declared = base.getType();
+        Type owner = field.getDeclaringClass().getType();
+        if (declared instanceof RefType && hierarchy.canStoreType(owner, declared)) {
+            return owner;
+        }
+        return declared;
+    }
+
+    private boolean compatible(Type a, Type b) {
+        // Primitive values are never aliases of anything
+        if (!(a instanceof RefLikeType) || !(b instanceof RefLikeType)) return false;
+
+        if (a instanceof NullType || b instanceof NullType) return true;
+        if (a == b) return true;
+
+        if (hierarchy.canStoreType(a, b) || hierarchy.canStoreType(b, a)) return true;
+
+        if (a instanceof RefType && b instanceof RefType) {
+            SootClass ca = ((RefType) a).getSootClass();
+            SootClass cb = ((RefType) b).getSootClass();
+
+            // Nothing is known about the subtypes of a phantom class
+            if (ca.isPhantom() || cb.isPhantom()) return true;
+
+            // A subclass of one may still implement the other interface
+            if (ca.isInterface() && cb.isInterface()) return true;
+            if (ca.isInterface()) return !cb.isFinal();
+            if (cb.isInterface()) return !ca.isFinal();
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+import soot.*;
+
+import java.util.*;
+
+// Points-to sets made of Steensgaard unification classes ("U<class>").
+//
+// Two locals get a common object exactly when the oracle puts them in the
+// same class, so kills are decided by class identity. Field contents are
+// left empty: a whole class is far too coarse to prove two loads read the
+// same value, and the redundancy lookup then falls back to same base, same
+// field.
+class UnificationPointsToBackend implements PointsToBackend {
+
+    private final SteensgaardAliasOracle oracle;
+
+    UnificationPointsToBackend(SteensgaardAliasOracle oracle) {
+        this.oracle = oracle;
+    }
+
+    @Override
+    public Set<String> getPointsToSet(Value var, Unit unit) {
+        int c = oracle.classId(var);
+        return c < 0 ? Collections.emptySet() : Collections.singleton("U" + c);
+    }
+
+    @Override
+    public Set<String> getFieldPointsToSet(Value base, SootField field, Unit unit) {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<String> getReachableObjects(Set<String> roots) {
+        return roots;
+    }
+
+    // Field contents are always empty; a class never identifies a value
+    @Override
+    public boolean identifiesValue(String obj) {
+        return false;
+    }
+}